@@ -0,0 +1,337 @@
+package other;
+
+// FIXME rename package
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// 类：ArchiveReplay，FrameArchive 归档的批量重新解析
+// 解析逻辑修正后用于重新处理历史数据：每个段文件用 FileChannel.map 只读映射，按段文件并行解析，
+// 帧数据从映射内存批量拷贝到工作线程的缓冲区后直接 tryDecode（tryDecode 只接受堆内数组），
+// 不经过十六进制字符串，也不把整个文件读入堆内存。
+// 同一段文件内的记录按写入顺序回调；不同段文件并行，回调需要线程安全。
+public class ArchiveReplay {
+
+    // 回调：result 只在回调期间有效，由工作线程复用
+    public interface RecordHandler {
+        void onRecord(String deviceId, long receivedMillis, DecodeResult result);
+    }
+
+    // 类：ReplayStats，一次回放的统计
+    public static class ReplayStats {
+        public int segments;
+        // 末尾有不完整记录的段文件数
+        public int truncatedSegments;
+        public long records;
+        public long decoded;
+        public long bytes;
+        public long elapsedNanos;
+        public final long[] errorsByStatus = new long[DecodeStatus.values().length];
+
+        public long errors(DecodeStatus status) {
+            return errorsByStatus[status.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder errors = new StringBuilder();
+            for (DecodeStatus status : DecodeStatus.values()) {
+                if (errorsByStatus[status.ordinal()] > 0) {
+                    errors.append(errors.length() == 0 ? "" : ", ").append(status).append('=').append(errorsByStatus[status.ordinal()]);
+                }
+            }
+            return "{" +
+                    "segments=" + segments +
+                    ", truncatedSegments=" + truncatedSegments +
+                    ", records=" + records +
+                    ", decoded=" + decoded +
+                    ", bytes=" + bytes +
+                    ", errors={" + errors + '}' +
+                    ", elapsedMs=" + elapsedNanos / 1_000_000 +
+                    '}';
+        }
+    }
+
+    // 工作线程的帧缓冲区、设备号缓冲区和解析结果
+    private static final class Worker {
+        byte[] frame = new byte[512];
+        final byte[] id = new byte[255];
+        final FrameArchive.Record record = new FrameArchive.Record();
+        final DecodeResult result = new DecodeResult();
+    }
+
+    private static final ThreadLocal<Worker> WORKER = ThreadLocal.withInitial(Worker::new);
+
+    private final ForkJoinPool pool;
+
+    public ArchiveReplay() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ArchiveReplay(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // 方法：并行回放目录中的所有段文件，全部完成后返回
+    public ReplayStats replay(Path dir, RecordHandler handler) throws IOException {
+        List<Path> segments = FrameArchive.segments(dir);
+        // 大文件先提交，减少最后只剩一个大文件在跑的情况
+        segments.sort(Comparator.comparingLong(ArchiveReplay::sizeOf).reversed());
+
+        long start = System.nanoTime();
+        Counters counters = new Counters();
+        List<Future<?>> futures = new ArrayList<>(segments.size());
+        for (Path segment : segments) {
+            futures.add(pool.submit(() -> {
+                try {
+                    replaySegment(segment, null, handler, counters);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(segment.toString(), e);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            join(future);
+        }
+        return counters.toStats(segments.size(), System.nanoTime() - start);
+    }
+
+    // 方法：按时间顺序回放单个设备的记录，有索引的段文件只解析该设备的记录，没有索引的整段扫描
+    public ReplayStats replayDevice(Path dir, String deviceId, RecordHandler handler) throws IOException {
+        List<Path> segments = FrameArchive.segments(dir);
+        long start = System.nanoTime();
+        Counters counters = new Counters();
+        for (Path segment : segments) {
+            replaySegment(segment, deviceId, handler, counters);
+        }
+        return counters.toStats(segments.size(), System.nanoTime() - start);
+    }
+
+    private static void replaySegment(Path path, String deviceId, RecordHandler handler, Counters counters) throws IOException {
+        MappedByteBuffer segment;
+        // 映射建立后即可关闭通道，映射在 buffer 被回收前一直有效
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        int first = FrameArchive.checkHeader(segment);
+
+        Worker worker = WORKER.get();
+        Local local = new Local();
+        Path index = FrameArchive.indexFile(path);
+        if (deviceId != null && Files.exists(index)) {
+            for (int pos : indexedPositions(index, deviceId)) {
+                if (decodeRecord(segment, pos, null, handler, worker, local) < 0) {
+                    local.truncated = true;
+                    break;
+                }
+            }
+        } else {
+            int pos = first;
+            while (pos < segment.limit()) {
+                pos = decodeRecord(segment, pos, deviceId, handler, worker, local);
+                if (pos < 0) {
+                    local.truncated = true;
+                    break;
+                }
+            }
+        }
+        counters.add(local);
+    }
+
+    // 解析 pos 处的记录，deviceId 不为 null 时跳过其他设备，返回下一条记录的位置
+    private static int decodeRecord(MappedByteBuffer segment, int pos, String deviceId, RecordHandler handler,
+                                    Worker worker, Local local) {
+        FrameArchive.Record record = worker.record;
+        int next = FrameArchive.readRecord(segment, pos, worker.id, record);
+        if (next < 0 || (deviceId != null && !deviceId.equals(record.deviceId))) {
+            return next;
+        }
+
+        int len = record.frameLength;
+        byte[] frame = worker.frame;
+        if (frame.length < len) {
+            frame = new byte[Math.max(len, frame.length * 2)];
+            worker.frame = frame;
+        }
+        segment.get(record.frameOffset, frame, 0, len);
+
+        DecodeResult result = worker.result;
+        TLVDecoder.tryDecode(frame, 0, len, record.deviceId, result);
+        local.records++;
+        local.bytes += len;
+        if (result.ok()) {
+            local.decoded++;
+        } else {
+            local.errorsByStatus[result.status.ordinal()]++;
+        }
+        handler.onRecord(record.deviceId, record.receivedMillis, result);
+        return next;
+    }
+
+    // 读取索引文件，返回该设备所有记录在段文件中的位置
+    private static int[] indexedPositions(Path index, String deviceId) throws IOException {
+        MappedByteBuffer entries;
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        entries.order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] id = deviceId.getBytes(StandardCharsets.UTF_8);
+        int[] positions = new int[16];
+        int count = 0;
+        int pos = 0;
+        int limit = entries.limit();
+        while (pos < limit) {
+            int idLength = entries.get(pos) & 0xFF;
+            if (pos + 1 + idLength + 4 > limit) {
+                break;
+            }
+            if (idLength == id.length && matches(entries, pos + 1, id)) {
+                if (count == positions.length) {
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                positions[count++] = entries.getInt(pos + 1 + idLength);
+            }
+            pos += 1 + idLength + 4;
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    private static boolean matches(MappedByteBuffer buffer, int offset, byte[] id) {
+        for (int i = 0; i < id.length; i++) {
+            if (buffer.get(offset + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void join(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("回放被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // 单个段文件的计数，解析完一段后一次性合并，避免逐条记录竞争
+    private static final class Local {
+        long records;
+        long decoded;
+        long bytes;
+        boolean truncated;
+        final long[] errorsByStatus = new long[DecodeStatus.values().length];
+    }
+
+    private static final class Counters {
+        final LongAdder records = new LongAdder();
+        final LongAdder decoded = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder truncatedSegments = new LongAdder();
+        final LongAdder[] errorsByStatus = new LongAdder[DecodeStatus.values().length];
+
+        Counters() {
+            for (int i = 0; i < errorsByStatus.length; i++) {
+                errorsByStatus[i] = new LongAdder();
+            }
+        }
+
+        void add(Local local) {
+            records.add(local.records);
+            decoded.add(local.decoded);
+            bytes.add(local.bytes);
+            if (local.truncated) {
+                truncatedSegments.increment();
+            }
+            for (int i = 0; i < errorsByStatus.length; i++) {
+                errorsByStatus[i].add(local.errorsByStatus[i]);
+            }
+        }
+
+        ReplayStats toStats(int segments, long elapsedNanos) {
+            ReplayStats stats = new ReplayStats();
+            stats.segments = segments;
+            stats.truncatedSegments = truncatedSegments.intValue();
+            stats.records = records.sum();
+            stats.decoded = decoded.sum();
+            stats.bytes = bytes.sum();
+            stats.elapsedNanos = elapsedNanos;
+            for (int i = 0; i < errorsByStatus.length; i++) {
+                stats.errorsByStatus[i] = errorsByStatus[i].sum();
+            }
+            return stats;
+        }
+    }
+
+    // 主方法：在临时目录写入模拟的一批归档数据后全量回放和按设备回放
+    public static void main(String[] args) throws IOException {
+        String src = "4347417200851f00f463506a13f800560321020500070001f008004100320034000000000000003802003a006108003435353031313735110500312e322e3981020008098902004b018a04004c150000650100b36401006474020021107004001e0000002c0100008b010002710400db0e00001d0100015912";
+        byte[] frame = TLVDecoder.hexStringToByteArray(src);
+        Path dir = Files.createTempDirectory("frame-archive");
+
+        int devices = 1000;
+        int frames = 1_000_000;
+        long now = System.currentTimeMillis();
+        try (FrameArchive.Writer writer = new FrameArchive.Writer(dir, 16L * 1024 * 1024, true)) {
+            for (int i = 0; i < frames; i++) {
+                if (i % 1000 == 1) {
+                    writer.append("mac" + (i % devices), now + i, frame, 0, 2); // 故意放一个坏帧
+                } else {
+                    writer.append("mac" + (i % devices), now + i, frame);
+                }
+            }
+        }
+
+        LongAdder sensorData = new LongAdder();
+        ArchiveReplay replay = new ArchiveReplay();
+        replay.replay(dir, (deviceId, receivedMillis, result) -> sensorData.add(result.sensorData.size())); // 预热
+        ReplayStats stats = replay.replay(dir, (deviceId, receivedMillis, result) -> sensorData.add(result.sensorData.size()));
+        System.out.println("replay: " + stats);
+        System.out.printf("%.0f frames/s, %.1f MB/s%n",
+                stats.records * 1e9 / stats.elapsedNanos, stats.bytes * 1e3 / stats.elapsedNanos);
+
+        ReplayStats device = replay.replayDevice(dir, "mac2", (deviceId, receivedMillis, result) -> {
+        });
+        System.out.println("replayDevice mac2: " + device);
+
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(path -> path.toFile().delete());
+        }
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,290 @@
+package other;
+
+// FIXME rename package
+
+import java.util.Arrays;
+import java.util.List;
+
+// 类：BleDecoder，青萍 BLE 广播解析
+// 直接在扫描记录 byte[] 上查找 0x16 Service Data（UUID 0xFDCD / 0xFFF9），不经过十六进制字符串。
+// 每个 MAC 记录上一条广播内容的 64 位哈希，内容相同的重复广播在完整解析前跳过；
+// 哈希缓存按 MAC 直接映射到固定大小的槽位，冲突时覆盖，不会无限增长。
+// 实例不是线程安全的，每个扫描线程使用一个。
+public class BleDecoder {
+
+    // 枚举：Result，单条扫描记录的处理结果
+    public enum Result {
+        DECODED,      // 新数据，已解析
+        DUPLICATE,    // 与该 MAC 上一条广播内容相同，未解析
+        NOT_QINGPING, // 没有青萍 Service Data
+        MALFORMED     // 长度字段超出范围
+    }
+
+    // 类：BleData，解析后的广播数据，未出现的字段为 null
+    public static class BleData {
+        public String mac;
+        public int productId;
+        public Double temperature;
+        public Double humidity;
+        public Integer battery;
+        public Integer open;
+        public Integer body;
+        public Integer light;
+        public Integer eventId;
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "mac='" + mac + '\'' +
+                    ", productId=" + productId +
+                    ", temperature=" + temperature +
+                    ", humidity=" + humidity +
+                    ", battery=" + battery +
+                    ", open=" + open +
+                    ", body=" + body +
+                    ", light=" + light +
+                    ", eventId=" + eventId +
+                    '}';
+        }
+    }
+
+    private static final int AD_SERVICE_DATA = 0x16;
+    // Service Data 中 UUID(2) + 帧控制(1) + 产品id(1) + MAC(6) 之后为传感器数据
+    private static final int SENSOR_DATA_OFFSET = 11;
+    private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+
+    private final long[] cacheMacs;
+    private final long[] cacheHashes;
+    private final int cacheMask;
+
+    // 最近一次 find 找到的 Service Data 位置，从 AD 类型字节 0x16 开始，长度与 AD 长度字段相同
+    private int dataOffset;
+    private int dataLen;
+
+    private long decodedCount;
+    private long duplicateCount;
+    private long ignoredCount;
+
+    public BleDecoder() {
+        this(4096);
+    }
+
+    // cacheSize 向上取 2 的幂，约为同时在扫描范围内的设备数
+    public BleDecoder(int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize must be positive");
+        }
+        int size = Integer.highestOneBit(cacheSize * 2 - 1);
+        cacheMacs = new long[size];
+        cacheHashes = new long[size];
+        cacheMask = size - 1;
+        // MAC 为 48 位，-1 不会与真实 MAC 冲突
+        Arrays.fill(cacheMacs, -1L);
+    }
+
+    // 方法：解析一条扫描记录 byteArray[offset, offset+len)，结果为 DECODED 时写入 out
+    public Result decode(byte[] byteArray, int offset, int len, BleData out) {
+        Result result = find(byteArray, offset, len);
+        if (result != Result.DECODED) {
+            ignoredCount++;
+            return result;
+        }
+
+        int data = dataOffset;
+        long mac = readMac(byteArray, data + 5);
+        long hash = hash(byteArray, data + 3, dataLen - 3);
+        int slot = slot(mac);
+        if (cacheMacs[slot] == mac && cacheHashes[slot] == hash) {
+            duplicateCount++;
+            return Result.DUPLICATE;
+        }
+
+        if (!decodeSensorData(byteArray, data + SENSOR_DATA_OFFSET, data + dataLen, out)) {
+            ignoredCount++;
+            return Result.MALFORMED;
+        }
+        out.productId = byteArray[data + 4] & 0xFF;
+        out.mac = macString(mac);
+
+        cacheMacs[slot] = mac;
+        cacheHashes[slot] = hash;
+        decodedCount++;
+        return Result.DECODED;
+    }
+
+    // 方法：解析一批扫描记录，新数据依次追加到 out，返回追加的条数
+    public int decodeBatch(List<byte[]> scanRecords, List<BleData> out) {
+        int decoded = 0;
+        BleData data = null;
+        for (int i = 0; i < scanRecords.size(); i++) {
+            byte[] record = scanRecords.get(i);
+            if (data == null) {
+                data = new BleData();
+            }
+            if (decode(record, 0, record.length, data) == Result.DECODED) {
+                out.add(data);
+                data = null;
+                decoded++;
+            }
+        }
+        return decoded;
+    }
+
+    // 方法：解析连续存放在 buffer 中的一批扫描记录，第 i 条为 buffer[offsets[i], offsets[i]+lengths[i])
+    public int decodeBatch(byte[] buffer, int[] offsets, int[] lengths, int count, List<BleData> out) {
+        int decoded = 0;
+        BleData data = null;
+        for (int i = 0; i < count; i++) {
+            if (data == null) {
+                data = new BleData();
+            }
+            if (decode(buffer, offsets[i], lengths[i], data) == Result.DECODED) {
+                out.add(data);
+                data = null;
+                decoded++;
+            }
+        }
+        return decoded;
+    }
+
+    // 方法：忘记所有设备的上一条广播，之后每个 MAC 的第一条广播都会重新解析
+    public void clearCache() {
+        Arrays.fill(cacheMacs, -1L);
+    }
+
+    public long decodedCount() {
+        return decodedCount;
+    }
+
+    public long duplicateCount() {
+        return duplicateCount;
+    }
+
+    public long ignoredCount() {
+        return ignoredCount;
+    }
+
+    // 遍历 AD 结构 len(1) type(1) data(len-1)，找到青萍 Service Data 时返回 DECODED
+    private Result find(byte[] byteArray, int offset, int len) {
+        int end = offset + len;
+        int index = offset;
+        while (index < end - 1) {
+            int adLen = byteArray[index] & 0xFF;
+            if (adLen == 0) {
+                // 其余为填充字节
+                break;
+            }
+            if (index + 1 + adLen > end) {
+                return Result.MALFORMED;
+            }
+            if ((byteArray[index + 1] & 0xFF) == AD_SERVICE_DATA) {
+                dataOffset = index + 1;
+                dataLen = adLen;
+                if (dataLen < SENSOR_DATA_OFFSET) {
+                    return Result.NOT_QINGPING;
+                }
+                int uuid = ((byteArray[dataOffset + 1] & 0xFF) << 8) | (byteArray[dataOffset + 2] & 0xFF);
+                return uuid == 0xCDFD || uuid == 0xF9FF ? Result.DECODED : Result.NOT_QINGPING;
+            }
+            index += adLen + 1;
+        }
+        return Result.NOT_QINGPING;
+    }
+
+    // 传感器数据为 key(1) len(1) value(len)，返回 false 表示长度超出范围
+    private static boolean decodeSensorData(byte[] byteArray, int from, int to, BleData out) {
+        out.temperature = null;
+        out.humidity = null;
+        out.battery = null;
+        out.open = null;
+        out.body = null;
+        out.light = null;
+        out.eventId = null;
+
+        int i = from;
+        while (i < to) {
+            if (i + 2 > to) {
+                return false;
+            }
+            int key = byteArray[i] & 0xFF;
+            int len = byteArray[i + 1] & 0xFF;
+            int value = i + 2;
+            if (value + len > to) {
+                return false;
+            }
+
+            switch (key) {
+                case 0x01:
+                    if (len == 4) {
+                        out.temperature = (short) TLVDecoder.readUIntLittleEndian(byteArray, value, 2) / 10.0;
+                        out.humidity = (short) TLVDecoder.readUIntLittleEndian(byteArray, value + 2, 2) / 10.0;
+                    }
+                    break;
+                case 0x02:
+                    if (len == 1) {
+                        out.battery = byteArray[value] & 0xFF;
+                    }
+                    break;
+                case 0x04:
+                    if (len >= 1) {
+                        out.open = byteArray[value] & 0xFF;
+                    }
+                    break;
+                case 0x08:
+                case 0x0D:
+                    if (len >= 3) {
+                        out.body = byteArray[value] & 0xFF;
+                        out.light = TLVDecoder.readUIntLittleEndian(byteArray, value + 1, 2);
+                    }
+                    break;
+                case 0x09:
+                    if (len >= 2) {
+                        out.light = TLVDecoder.readUIntLittleEndian(byteArray, value, 2);
+                    }
+                    break;
+                case 0x0F:
+                    if (len >= 1) {
+                        out.eventId = byteArray[value] & 0xFF;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            i = value + len;
+        }
+        return true;
+    }
+
+    // 广播中的 MAC 为小端序，读成 48 位整数后高字节即显示顺序的第一个字节
+    private static long readMac(byte[] byteArray, int offset) {
+        long mac = 0;
+        for (int i = 5; i >= 0; i--) {
+            mac = (mac << 8) | (byteArray[offset + i] & 0xFF);
+        }
+        return mac;
+    }
+
+    private static String macString(long mac) {
+        char[] chars = new char[12];
+        for (int i = 11; i >= 0; i--) {
+            chars[i] = HEX_UPPER[(int) (mac & 0xF)];
+            mac >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    // FNV-1a 64 位
+    private static long hash(byte[] byteArray, int offset, int len) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = offset; i < offset + len; i++) {
+            h ^= byteArray[i] & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private int slot(long mac) {
+        long h = mac * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & cacheMask;
+    }
+}
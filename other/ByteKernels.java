@@ -0,0 +1,128 @@
+package other;
+
+// FIXME rename package
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// 类：ByteKernels，帧校验和与转义还原用到的逐字节循环
+// 类路径上有可选的 other.vector.VectorByteKernels（单独编译，见 README），且运行时加载了 jdk.incubator.vector 模块
+// （启动参数 --add-modules jdk.incubator.vector）时通过 MethodHandle 调用它，否则走标量实现，两者结果完全相同。
+// 本类不引用孵化模块，other/*.java 用普通 javac 即可编译。-Dother.vector=false 可强制使用标量实现。
+public final class ByteKernels {
+
+    private static final String VECTOR_CLASS = "other.vector.VectorByteKernels";
+
+    // Vector API 实现，不可用时为 null；static final 的 MethodHandle 可被 JIT 内联
+    private static final MethodHandle VECTOR_BYTE_SUM;
+    private static final MethodHandle VECTOR_SUBSTITUTE;
+
+    static {
+        MethodHandle byteSum = null;
+        MethodHandle substitute = null;
+        if (vectorEnabled()) {
+            try {
+                Class<?> kernels = Class.forName(VECTOR_CLASS);
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                byteSum = lookup.findStatic(kernels, "byteSum",
+                        MethodType.methodType(int.class, byte[].class, int.class, int.class));
+                substitute = lookup.findStatic(kernels, "substitute",
+                        MethodType.methodType(int.class, byte[].class, int.class, int.class, int.class,
+                                int.class, int.class, int.class, byte.class, byte.class, byte.class));
+            } catch (ReflectiveOperationException | LinkageError e) {
+                byteSum = null;
+                substitute = null;
+            }
+        }
+        VECTOR_BYTE_SUM = byteSum;
+        VECTOR_SUBSTITUTE = substitute;
+    }
+
+    // 是否使用 Vector API，static final 便于 JIT 消除分支
+    public static final boolean VECTORIZED = VECTOR_BYTE_SUM != null;
+
+    // 短于一个向量的数据直接走标量循环
+    static final int MIN_VECTOR_LEN = 32;
+
+    // 256 项字节替换表，平时为恒等映射；每个线程一份，用完立即还原，避免每个包创建 Map
+    private static final ThreadLocal<byte[]> SUBSTITUTE_TABLE = ThreadLocal.withInitial(() -> {
+        byte[] table = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            table[i] = (byte) i;
+        }
+        return table;
+    });
+
+    private ByteKernels() {
+    }
+
+    private static boolean vectorEnabled() {
+        if (!Boolean.parseBoolean(System.getProperty("other.vector", "true"))) {
+            return false;
+        }
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    // 方法：b[offset, offset+len) 按无符号字节求和，结果取低 16 位
+    public static int byteSum(byte[] b, int offset, int len) {
+        if (VECTORIZED && len >= MIN_VECTOR_LEN) {
+            try {
+                return (int) VECTOR_BYTE_SUM.invokeExact(b, offset, len);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+        return byteSumScalar(b, offset, len);
+    }
+
+    // 方法：把 b[from, to) 中等于 s0 / s1 / s2 的字节分别替换为 t0 / t1 / t2 后写到 write 处，返回写入后的位置
+    // 源字节为 -1 表示该位置不替换；源字节相同时以后一个为准。write 不大于 from，可在原数组上就地处理
+    public static int substitute(byte[] b, int from, int to, int write,
+                                 int s0, int s1, int s2, byte t0, byte t1, byte t2) {
+        if (VECTORIZED && to - from >= MIN_VECTOR_LEN) {
+            try {
+                return (int) VECTOR_SUBSTITUTE.invokeExact(b, from, to, write, s0, s1, s2, t0, t1, t2);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+        return substituteScalar(b, from, to, write, s0, s1, s2, t0, t1, t2);
+    }
+
+    public static int byteSumScalar(byte[] b, int offset, int len) {
+        int sum = 0;
+        for (int i = offset; i < offset + len; i++) {
+            sum += (b[i] & 0xFF); // 转成无符号
+        }
+        return sum & 0xFFFF; // 返回 uint16 效果
+    }
+
+    public static int substituteScalar(byte[] b, int from, int to, int write,
+                                       int s0, int s1, int s2, byte t0, byte t1, byte t2) {
+        byte[] table = SUBSTITUTE_TABLE.get();
+        if (s0 >= 0) table[s0] = t0;
+        if (s1 >= 0) table[s1] = t1;
+        if (s2 >= 0) table[s2] = t2;
+
+        for (int i = from; i < to; i++) {
+            b[write++] = table[b[i] & 0xFF];
+        }
+
+        if (s0 >= 0) table[s0] = (byte) s0;
+        if (s1 >= 0) table[s1] = (byte) s1;
+        if (s2 >= 0) table[s2] = (byte) s2;
+        return write;
+    }
+
+    // Vector API 实现只会抛出非受检异常（如数组越界），原样抛出
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,22 @@
+package other;
+
+// FIXME rename package
+
+// 类：DecodeException，带错误原因的解析异常
+// 继承 IllegalArgumentException，原有按 IllegalArgumentException 捕获的代码不受影响
+public class DecodeException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    public final DecodeStatus status;
+
+    public DecodeException(DecodeStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public DecodeException(DecodeStatus status, String message, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+}
@@ -0,0 +1,15 @@
+package other;
+
+// FIXME rename package
+
+// 接口：DecodeListener，解析过程回调
+// 通过 TLVDecoder.setDecodeListener 注册；未注册时 tlvDecode 只多一次 null 判断，不计时也不回调。
+// 回调在解析线程上同步执行，实现需线程安全且尽量轻量。
+public interface DecodeListener {
+
+    // 一帧解析成功，frame 只在回调期间有效，nanos 为本帧解析耗时
+    void onFrame(TlvFrame frame, long nanos);
+
+    // 解析失败，cmd 为命令字节，帧头不完整时为 -1
+    void onError(DecodeStatus status, int cmd);
+}
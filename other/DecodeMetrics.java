@@ -0,0 +1,288 @@
+package other;
+
+// FIXME rename package
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// 类：DecodeMetrics，解析统计
+// 按 cmd、子包 key、错误原因计数，并记录解析耗时和 payload 长度的分布。
+// 计数用 LongAdder，分布用对数线性分桶的直方图（每个 2 的幂区间 8 个桶，相对误差约 12.5%），多线程记录无锁。
+// 可通过 registerMBean 导出到 JMX；接入 Micrometer 时用 FunctionCounter / Gauge 读取下面的 getter 即可。
+public class DecodeMetrics implements DecodeListener, DecodeMetricsMXBean {
+
+    // 类：Histogram，对数线性分桶直方图
+    // 0~7 各占一个桶；之后每个 [2^n, 2^(n+1)) 区间按高 3 位再分 8 个桶
+    public static class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int BUCKET_COUNT = 64 * SUB_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            counts.incrementAndGet(bucketOf(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        public double mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        // 方法：p 分位数（0~1），返回所在桶的上界
+        public long percentile(double p) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(p * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        public void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts.set(i, 0);
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_COUNT) {
+                return (int) value;
+            }
+            int msb = 63 - Long.numberOfLeadingZeros(value);
+            int shift = msb - SUB_BITS;
+            return (msb - SUB_BITS + 1) * SUB_COUNT + (int) ((value >>> shift) & (SUB_COUNT - 1));
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_COUNT) {
+                return bucket;
+            }
+            int shift = bucket / SUB_COUNT - 1;
+            long lower = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+            return lower + (1L << shift) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "count=" + count() +
+                    ", p50=" + percentile(0.5) +
+                    ", p99=" + percentile(0.99) +
+                    ", max=" + max() +
+                    '}';
+        }
+    }
+
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder[] framesByCmd = adders(256);
+    private final LongAdder[] subPacksByKey = adders(256);
+    private final LongAdder[] errorsByStatus = adders(DecodeStatus.values().length);
+
+    private final Histogram latency = new Histogram();
+    private final Histogram payloadSize = new Histogram();
+    // 按 cmd 的耗时分布，第一次出现该 cmd 时创建
+    private final AtomicReferenceArray<Histogram> latencyByCmd = new AtomicReferenceArray<>(256);
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    @Override
+    public void onFrame(TlvFrame frame, long nanos) {
+        int cmd = frame.cmd();
+        frames.increment();
+        framesByCmd[cmd].increment();
+        for (int i = 0; i < frame.size(); i++) {
+            subPacksByKey[frame.key(i)].increment();
+        }
+        latency.record(nanos);
+        latency(cmd).record(nanos);
+        payloadSize.record(frame.length());
+    }
+
+    @Override
+    public void onError(DecodeStatus status, int cmd) {
+        errors.increment();
+        errorsByStatus[status.ordinal()].increment();
+    }
+
+    // 方法：某个 cmd 的耗时分布
+    public Histogram latency(int cmd) {
+        Histogram histogram = latencyByCmd.get(cmd & 0xFF);
+        if (histogram == null) {
+            latencyByCmd.compareAndSet(cmd & 0xFF, null, new Histogram());
+            histogram = latencyByCmd.get(cmd & 0xFF);
+        }
+        return histogram;
+    }
+
+    public Histogram latency() {
+        return latency;
+    }
+
+    public Histogram payloadSize() {
+        return payloadSize;
+    }
+
+    public long frameCount(int cmd) {
+        return framesByCmd[cmd & 0xFF].sum();
+    }
+
+    public long subPackCount(int key) {
+        return subPacksByKey[key & 0xFF].sum();
+    }
+
+    public long errorCount(DecodeStatus status) {
+        return errorsByStatus[status.ordinal()].sum();
+    }
+
+    // 方法：注册到平台 MBeanServer，name 例如 "other:type=DecodeMetrics"
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public long getFrameCount() {
+        return frames.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public Map<String, Long> getFrameCountByCmd() {
+        return nonZero(framesByCmd);
+    }
+
+    @Override
+    public Map<String, Long> getSubPackCountByKey() {
+        return nonZero(subPacksByKey);
+    }
+
+    @Override
+    public Map<String, Long> getErrorCountByStatus() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (DecodeStatus status : DecodeStatus.values()) {
+            long n = errorsByStatus[status.ordinal()].sum();
+            if (n > 0) {
+                counts.put(status.name(), n);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public long getLatencyP50Nanos() {
+        return latency.percentile(0.5);
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return latency.percentile(0.99);
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return latency.max();
+    }
+
+    @Override
+    public long getPayloadSizeP50() {
+        return payloadSize.percentile(0.5);
+    }
+
+    @Override
+    public long getPayloadSizeP99() {
+        return payloadSize.percentile(0.99);
+    }
+
+    @Override
+    public void reset() {
+        frames.reset();
+        errors.reset();
+        for (LongAdder adder : framesByCmd) {
+            adder.reset();
+        }
+        for (LongAdder adder : subPacksByKey) {
+            adder.reset();
+        }
+        for (LongAdder adder : errorsByStatus) {
+            adder.reset();
+        }
+        latency.reset();
+        payloadSize.reset();
+        for (int i = 0; i < 256; i++) {
+            Histogram histogram = latencyByCmd.get(i);
+            if (histogram != null) {
+                histogram.reset();
+            }
+        }
+    }
+
+    // key 为两位十六进制
+    private static Map<String, Long> nonZero(LongAdder[] adders) {
+        Map<String, Long> counts = new TreeMap<>();
+        for (int i = 0; i < adders.length; i++) {
+            long n = adders[i].sum();
+            if (n > 0) {
+                counts.put(TLVDecoder.HEX_KEYS[i], n);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "frames=" + getFrameCountByCmd() +
+                ", subPacks=" + getSubPackCountByKey() +
+                ", errors=" + getErrorCountByStatus() +
+                ", latencyNanos=" + latency +
+                ", payloadSize=" + payloadSize +
+                '}';
+    }
+}
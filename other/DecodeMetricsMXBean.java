@@ -0,0 +1,30 @@
+package other;
+
+// FIXME rename package
+
+import java.util.Map;
+
+// 接口：DecodeMetricsMXBean，DecodeMetrics 的 JMX 属性，map 的 key 为两位十六进制 cmd / key 或错误原因
+public interface DecodeMetricsMXBean {
+    long getFrameCount();
+
+    long getErrorCount();
+
+    Map<String, Long> getFrameCountByCmd();
+
+    Map<String, Long> getSubPackCountByKey();
+
+    Map<String, Long> getErrorCountByStatus();
+
+    long getLatencyP50Nanos();
+
+    long getLatencyP99Nanos();
+
+    long getLatencyMaxNanos();
+
+    long getPayloadSizeP50();
+
+    long getPayloadSizeP99();
+
+    void reset();
+}
@@ -0,0 +1,68 @@
+package other;
+
+// FIXME rename package
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 类：DecodeResult，不抛异常的解析结果
+// 由 TLVDecoder.tryDecode 填充，格式错误只体现在 status 上，不创建异常对象；
+// 能解析出的记录照常放在 sensorData 中。实例可重复使用，每次 tryDecode 前自动清空。
+public class DecodeResult {
+    // 第一个遇到的错误，OK 表示整帧完好
+    public DecodeStatus status = DecodeStatus.OK;
+    // 命令字节，帧头不完整时为 -1
+    public int cmd = -1;
+    public int length;
+    public int productId;
+    public final List<TLVDecoder.SensorData> sensorData = new ArrayList<>();
+    // 内容不足以解析而跳过的子包个数
+    public int skippedSubPacks;
+    // 未在 TlvKeyRegistry 注册的子包个数
+    public int unknownKeys;
+
+    public DecodeResult clear() {
+        status = DecodeStatus.OK;
+        cmd = -1;
+        length = 0;
+        productId = 0;
+        sensorData.clear();
+        skippedSubPacks = 0;
+        unknownKeys = 0;
+        return this;
+    }
+
+    public boolean ok() {
+        return status == DecodeStatus.OK;
+    }
+
+    // 记录第一个错误
+    void fail(DecodeStatus status) {
+        if (this.status == DecodeStatus.OK) {
+            this.status = status;
+        }
+    }
+
+    // 方法：转换为 tlvDecode 的返回类型，sensorData 为拷贝，帧头不完整时返回 null
+    public TLVDecoder.TlvUnpackResult toUnpackResult() {
+        if (cmd < 0) {
+            return null;
+        }
+        TLVDecoder.TlvUnpackResult result = new TLVDecoder.TlvUnpackResult(TLVDecoder.HEX_KEYS[cmd], length);
+        result.sensorData = new ArrayList<>(sensorData);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "status=" + status +
+                ", cmd=" + (cmd < 0 ? "null" : "'" + TLVDecoder.HEX_KEYS[cmd] + "'") +
+                ", length=" + length +
+                ", productId=" + productId +
+                ", skippedSubPacks=" + skippedSubPacks +
+                ", unknownKeys=" + unknownKeys +
+                ", sensorData=" + sensorData +
+                '}';
+    }
+}
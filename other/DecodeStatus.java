@@ -0,0 +1,16 @@
+package other;
+
+// FIXME rename package
+
+// 枚举：DecodeStatus，解析结果 / 错误原因
+public enum DecodeStatus {
+    OK,
+    SHORT_HEADER,   // 不足 5 字节帧头
+    BAD_LENGTH,     // payload 长度超出数据范围
+    BAD_SUB_PACK,   // 子包 key / 长度不完整或超出 payload
+    BAD_ESCAPE,     // 转义包、分包格式错误
+    DECRYPT_FAILED, // AES 解密失败
+    BAD_CRC,        // 字节和校验失败
+    BAD_PAYLOAD,    // 子包内容长度不足以解析
+    UNKNOWN_KEY     // 未注册的子包 key
+}
@@ -0,0 +1,180 @@
+package other;
+
+// FIXME rename package
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// 类：DeviceContextCache，设备解析上下文缓存
+// 按设备 mac / sn 记住之前数据帧里的产品id (0x38) 和固件版本 (0x11)，后续不带 0x38 的帧直接使用缓存的产品id，
+// 避免 0x4D 阀门历史数据按温湿度格式解析。
+// 按 deviceId 的 hash 分成若干段，每段是一个按访问顺序的 LinkedHashMap，超出容量时淘汰最久未访问的设备。
+public class DeviceContextCache {
+
+    // 类：DeviceContext，单个设备的上下文，创建后不再修改
+    public static class DeviceContext {
+        public final String deviceId;
+        public final int productId;
+        private final byte[] firmware;
+
+        DeviceContext(String deviceId, int productId, byte[] firmware) {
+            this.deviceId = deviceId;
+            this.productId = productId;
+            this.firmware = firmware;
+        }
+
+        public String firmware() {
+            return firmware == null ? null : new String(firmware, StandardCharsets.UTF_8);
+        }
+
+        // 历史数据单条记录长度，len 为 0x03 子包长度（Robb、FrogS 按长度区分新旧记录格式）
+        public int historyRecordSize(int len) {
+            return HistoryCursor.historyRecordSize(productId, len);
+        }
+
+        boolean sameFirmware(byte[] byteArray, int offset, int len) {
+            return firmware != null && Arrays.equals(firmware, 0, firmware.length, byteArray, offset, offset + len);
+        }
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "deviceId='" + deviceId + '\'' +
+                    ", productId=" + productId +
+                    ", firmware='" + firmware() + '\'' +
+                    '}';
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<String, DeviceContext> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DeviceContext> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final Segment[] segments;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public DeviceContextCache(int maxSize) {
+        this(maxSize, 64);
+    }
+
+    // segmentCount 向上取 2 的幂，每段容量为 maxSize / segmentCount（向上取整）
+    public DeviceContextCache(int maxSize, int segmentCount) {
+        if (maxSize < 1 || segmentCount < 1) {
+            throw new IllegalArgumentException("maxSize and segmentCount must be positive");
+        }
+        int count = Integer.highestOneBit(Math.min(segmentCount, maxSize) * 2 - 1);
+        int perSegment = (maxSize + count - 1) / count;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        mask = count - 1;
+    }
+
+    private Segment segmentFor(String deviceId) {
+        int h = deviceId.hashCode();
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    // 方法：查找设备上下文，不存在时返回 null
+    public DeviceContext get(String deviceId) {
+        Segment segment = segmentFor(deviceId);
+        DeviceContext context;
+        synchronized (segment) {
+            context = segment.get(deviceId);
+        }
+        if (context != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return context;
+    }
+
+    // 方法：记录设备的产品id 和固件版本 byteArray[offset, offset+len)，len < 0 表示帧中没有固件版本
+    // 与已缓存内容相同时不创建新对象
+    public DeviceContext update(String deviceId, int productId, byte[] byteArray, int offset, int len) {
+        Segment segment = segmentFor(deviceId);
+        synchronized (segment) {
+            DeviceContext context = segment.get(deviceId);
+            if (context != null && context.productId == productId
+                    && (len < 0 || context.sameFirmware(byteArray, offset, len))) {
+                return context;
+            }
+
+            byte[] firmware = len >= 0
+                    ? Arrays.copyOfRange(byteArray, offset, offset + len)
+                    : context != null ? context.firmware : null;
+            context = new DeviceContext(deviceId, productId, firmware);
+            segment.put(deviceId, context);
+            return context;
+        }
+    }
+
+    public void remove(String deviceId) {
+        Segment segment = segmentFor(deviceId);
+        synchronized (segment) {
+            segment.remove(deviceId);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public double hitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "size=" + size() +
+                ", hits=" + hitCount() +
+                ", misses=" + missCount() +
+                ", evictions=" + evictionCount() +
+                '}';
+    }
+}
@@ -0,0 +1,379 @@
+package other;
+
+// FIXME rename package
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+// 类：DownlinkDispatcher，下发命令合并与应答跟踪
+// 同一设备尚未发出的设置（上报/采集间隔 0x04/0x05、阀门 0x72/0x73、MQTT 0x25、结束标志 0x1D）合并成一个 Command，
+// 按 TLVEncoder 的规则编码成一帧下发；每个设备同时只有一帧等待应答，等待期间新提交的设置继续合并，收到应答后一起下发。
+// 设备收到设置后以相同的命令字节上报、并带回下发的各个设置子包（内容相同）作为应答，由 acknowledge 匹配；
+// 只有命令字节相同的定时上报（如仍是旧配置的 0x32）不算应答。超时按 maxRetries 重发（重发时合并新的设置），仍无应答则失败。
+// 超时由哈希时间轮管理：每个设备只占一个槽位节点，调度和取消都是 O(1)。时间由 tick(nowMillis) 推进，
+// start() 启动内部定时线程，也可以由调用方驱动（测试时用假时钟）。
+public class DownlinkDispatcher implements AutoCloseable {
+
+    // 接口：Transport，把一帧数据下发给设备，例如发布到设备的 downTopic
+    public interface Transport {
+        void send(String deviceId, byte[] frame);
+    }
+
+    // 单个设备的下发状态，同时是时间轮槽位链表的节点
+    private static final class DeviceState {
+        final String deviceId;
+        // 尚未发出的合并设置
+        TLVEncoder.Command pending;
+        List<CompletableFuture<Void>> pendingFutures = new ArrayList<>();
+        // 已发出、等待应答的设置
+        TLVEncoder.Command inFlight;
+        List<CompletableFuture<Void>> inFlightFutures = new ArrayList<>();
+        // 最近一次发出的帧，应答需要带回其中的设置子包
+        byte[] inFlightFrame;
+        int attempts;
+
+        // 时间轮
+        long deadline;
+        int slot = -1;
+        DeviceState prev;
+        DeviceState next;
+
+        DeviceState(String deviceId) {
+            this.deviceId = deviceId;
+        }
+    }
+
+    // 待下发的一帧，锁外发送
+    private static final class Outgoing {
+        final String deviceId;
+        final byte[] frame;
+
+        Outgoing(String deviceId, byte[] frame) {
+            this.deviceId = deviceId;
+            this.frame = frame;
+        }
+    }
+
+    private final Transport transport;
+    private final long tickMillis;
+    private final long ackTimeoutTicks;
+    private final int maxRetries;
+
+    private final Map<String, DeviceState> states = new HashMap<>();
+    private final DeviceState[] wheel;
+    private final int wheelMask;
+    private long currentTick = -1;
+
+    private final LongAdder sendFailures = new LongAdder();
+
+    private ScheduledExecutorService timer;
+
+    // 默认每 100ms 一格，10 秒未应答重发，最多重发 2 次
+    public DownlinkDispatcher(Transport transport) {
+        this(transport, 100, 10_000, 2);
+    }
+
+    // tickMillis：时间轮一格的时长，也是合并窗口；提交后最迟一格下发
+    public DownlinkDispatcher(Transport transport, long tickMillis, long ackTimeoutMillis, int maxRetries) {
+        if (tickMillis < 1 || ackTimeoutMillis < tickMillis || maxRetries < 0) {
+            throw new IllegalArgumentException("tickMillis must be positive, ackTimeoutMillis >= tickMillis, maxRetries >= 0");
+        }
+        this.transport = transport;
+        this.tickMillis = tickMillis;
+        this.ackTimeoutTicks = (ackTimeoutMillis + tickMillis - 1) / tickMillis;
+        this.maxRetries = maxRetries;
+        // 超时在一圈之内，到期检查不用计算圈数
+        int size = Integer.highestOneBit((int) Math.min(ackTimeoutTicks + 1, 1 << 16) * 2 - 1);
+        this.wheel = new DeviceState[size];
+        this.wheelMask = size - 1;
+    }
+
+    // 方法：启动内部定时线程
+    public synchronized DownlinkDispatcher start() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "downlink-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.scheduleAtFixedRate(() -> tick(System.currentTimeMillis()), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    // 方法：提交设备的一组设置，返回的 future 在设备应答后完成，重试用尽时以 TimeoutException 失败
+    // 只设置需要修改的字段，与同一设备尚未发出的设置合并，后提交的字段覆盖先提交的
+    public CompletableFuture<Void> submit(String deviceId, TLVEncoder.Command settings) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (this) {
+            DeviceState state = states.computeIfAbsent(deviceId, DeviceState::new);
+            state.pending = merge(state.pending, settings);
+            state.pendingFutures.add(future);
+            if (state.inFlight == null && state.slot < 0) {
+                // 下一格下发，这一格内的其他设置一起合并
+                schedule(state, Math.max(currentTick, 0) + 1);
+            }
+        }
+        return future;
+    }
+
+    // 方法：用解析出的上行数据帧匹配应答，返回是否匹配
+    // 命令字节与等待应答的帧相同，且下发的每个设置子包（结束标志 0x1D 除外）都以相同内容出现在上行帧中时视为应答；
+    // 只有结束标志的帧没有可比对的设置，命令字节相同即视为应答
+    public boolean acknowledge(String deviceId, TlvFrame frame) {
+        List<CompletableFuture<Void>> completed;
+        synchronized (this) {
+            DeviceState state = states.get(deviceId);
+            if (state == null || state.inFlight == null || !echoes(state.inFlightFrame, frame)) {
+                return false;
+            }
+            completed = state.inFlightFutures;
+            state.inFlightFutures = new ArrayList<>();
+            state.inFlight = null;
+            state.attempts = 0;
+            unschedule(state);
+            if (state.pending != null) {
+                schedule(state, currentTick + 1);
+            } else {
+                states.remove(deviceId);
+            }
+        }
+        for (CompletableFuture<Void> future : completed) {
+            future.complete(null);
+        }
+        return true;
+    }
+
+    // 上行帧是否带回了 sent 中的全部设置子包
+    private static boolean echoes(byte[] sent, TlvFrame frame) {
+        if (frame.cmd() != (sent[2] & 0xFF)) {
+            return false;
+        }
+        int end = 5 + TLVDecoder.readUIntLittleEndian(sent, 3, 2);
+        for (int i = 5; i < end; ) {
+            int key = sent[i] & 0xFF;
+            int len = TLVDecoder.readUIntLittleEndian(sent, i + 1, 2);
+            int from = i + 3;
+            i = from + len;
+            if (key == 0x1D) {
+                continue;
+            }
+            int j = frame.find(key);
+            if (j < 0 || !Arrays.equals(sent, from, from + len,
+                    frame.buffer(), frame.offset(j), frame.offset(j) + frame.length(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 方法：推进时间到 nowMillis，下发到期的设置、重发或放弃超时的命令
+    public void tick(long nowMillis) {
+        List<Outgoing> outgoing = new ArrayList<>();
+        List<CompletableFuture<Void>> failed = new ArrayList<>();
+        synchronized (this) {
+            long target = nowMillis / tickMillis;
+            if (currentTick < 0) {
+                // 第一次推进时检查所有槽位，之前提交的设置按 0 时刻之后一格计算
+                currentTick = target - wheel.length;
+            }
+            // 停顿超过一圈时每个槽位只需检查一次
+            long from = Math.max(currentTick + 1, target - wheel.length + 1);
+            for (long t = from; t <= target; t++) {
+                expire(t, target, outgoing, failed);
+            }
+            currentTick = Math.max(currentTick, target);
+        }
+
+        TimeoutException timeout = null;
+        for (CompletableFuture<Void> future : failed) {
+            if (timeout == null) {
+                timeout = new TimeoutException("no ack from device");
+            }
+            future.completeExceptionally(timeout);
+        }
+        for (Outgoing o : outgoing) {
+            try {
+                transport.send(o.deviceId, o.frame);
+            } catch (RuntimeException e) {
+                // 发送失败与设备未应答相同，超时后重发
+                sendFailures.increment();
+            }
+        }
+    }
+
+    private void expire(long t, long now, List<Outgoing> outgoing, List<CompletableFuture<Void>> failed) {
+        int slot = (int) (t & wheelMask);
+        DeviceState state = wheel[slot];
+        while (state != null) {
+            DeviceState next = state.next;
+            if (state.deadline <= now) {
+                unschedule(state);
+                onDeadline(state, now, outgoing, failed);
+            }
+            state = next;
+        }
+    }
+
+    private void onDeadline(DeviceState state, long now, List<Outgoing> outgoing, List<CompletableFuture<Void>> failed) {
+        if (state.inFlight != null) {
+            if (state.attempts > maxRetries) {
+                failed.addAll(state.inFlightFutures);
+                state.inFlightFutures = new ArrayList<>();
+                state.inFlight = null;
+                state.attempts = 0;
+            } else {
+                // 重发，顺带合并等待中的设置
+                state.inFlight = merge(state.inFlight, state.pending);
+                state.inFlightFutures.addAll(state.pendingFutures);
+                state.pending = null;
+                state.pendingFutures.clear();
+                send(state, now, outgoing);
+                return;
+            }
+        }
+
+        if (state.pending != null) {
+            state.inFlight = state.pending;
+            List<CompletableFuture<Void>> futures = state.inFlightFutures;
+            state.inFlightFutures = state.pendingFutures;
+            state.pendingFutures = futures;
+            state.pending = null;
+            state.attempts = 0;
+            send(state, now, outgoing);
+        } else {
+            states.remove(state.deviceId);
+        }
+    }
+
+    private void send(DeviceState state, long now, List<Outgoing> outgoing) {
+        byte[] frame = TLVEncoder.tlvEncode(state.inFlight);
+        state.inFlightFrame = frame;
+        state.attempts++;
+        schedule(state, now + ackTimeoutTicks);
+        outgoing.add(new Outgoing(state.deviceId, frame));
+    }
+
+    private void schedule(DeviceState state, long deadline) {
+        int slot = (int) (deadline & wheelMask);
+        state.deadline = deadline;
+        state.slot = slot;
+        state.prev = null;
+        state.next = wheel[slot];
+        if (state.next != null) {
+            state.next.prev = state;
+        }
+        wheel[slot] = state;
+    }
+
+    private void unschedule(DeviceState state) {
+        if (state.slot < 0) {
+            return;
+        }
+        if (state.prev != null) {
+            state.prev.next = state.next;
+        } else {
+            wheel[state.slot] = state.next;
+        }
+        if (state.next != null) {
+            state.next.prev = state.prev;
+        }
+        state.prev = null;
+        state.next = null;
+        state.slot = -1;
+    }
+
+    // 后面的非零字段覆盖前面的，返回新对象，不修改参数
+    static TLVEncoder.Command merge(TLVEncoder.Command base, TLVEncoder.Command update) {
+        TLVEncoder.Command merged = new TLVEncoder.Command();
+        for (TLVEncoder.Command c : new TLVEncoder.Command[]{base, update}) {
+            if (c == null) {
+                continue;
+            }
+            if (c.cmd != 0) merged.cmd = c.cmd;
+            if (c.reportIntervl > 0) merged.reportIntervl = c.reportIntervl;
+            if (c.collectInterval > 0) merged.collectInterval = c.collectInterval;
+            if (c.valveOpen > 0) merged.valveOpen = c.valveOpen;
+            if (c.valveSelfCheck > 0) merged.valveSelfCheck = c.valveSelfCheck;
+            if (c.endFlag > 0) merged.endFlag = c.endFlag;
+            if (c.mqttSetting != null) merged.mqttSetting = c.mqttSetting;
+        }
+        return merged;
+    }
+
+    // 正在跟踪的设备数（有待下发或等待应答的设置）
+    public synchronized int pendingDevices() {
+        return states.size();
+    }
+
+    // Transport.send 抛出异常的次数，这些帧按未应答处理，超时后重发
+    public long sendFailureCount() {
+        return sendFailures.sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    // 主方法：用假时钟模拟批量下发、部分设备应答、超时重发
+    public static void main(String[] args) {
+        Map<String, Integer> sent = new HashMap<>();
+        DownlinkDispatcher dispatcher = new DownlinkDispatcher(
+                (deviceId, frame) -> sent.merge(deviceId, 1, Integer::sum), 100, 1000, 1);
+
+        long now = 0;
+        dispatcher.tick(now);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            TLVEncoder.Command interval = new TLVEncoder.Command();
+            interval.reportIntervl = 600;
+            interval.collectInterval = 60;
+            TLVEncoder.Command end = new TLVEncoder.Command();
+            end.endFlag = 1;
+            futures.add(dispatcher.submit("mac" + i, interval));
+            futures.add(dispatcher.submit("mac" + i, end));
+        }
+        dispatcher.tick(now += 100);
+
+        // 奇数设备只有旧配置的定时上报，不算应答；偶数设备带回新设置作为应答
+        TLVEncoder.Command report = new TLVEncoder.Command();
+        report.reportIntervl = 300;
+        report.collectInterval = 60;
+        TLVEncoder.Command echo = new TLVEncoder.Command();
+        echo.reportIntervl = 600;
+        echo.collectInterval = 60;
+        byte[] reportFrame = TLVEncoder.tlvEncode(report);
+        byte[] echoFrame = TLVEncoder.tlvEncode(echo);
+        TlvFrame frame = new TlvFrame();
+        int matched = 0;
+        for (int i = 0; i < 1000; i++) {
+            byte[] uplink = i % 2 == 0 ? echoFrame : reportFrame;
+            if (dispatcher.acknowledge("mac" + i, frame.reset(uplink, 0, uplink.length, "mac" + i))) {
+                matched++;
+            }
+        }
+        for (int i = 0; i < 30; i++) {
+            dispatcher.tick(now += 100);
+        }
+
+        long acked = futures.stream().filter(f -> f.isDone() && !f.isCompletedExceptionally()).count();
+        long timedOut = futures.stream().filter(CompletableFuture::isCompletedExceptionally).count();
+        int frames = sent.values().stream().mapToInt(Integer::intValue).sum();
+        System.out.printf("submitted=%d frames=%d matched=%d acked=%d timedOut=%d tracking=%d sendFailures=%d%n",
+                futures.size(), frames, matched, acked, timedOut, dispatcher.pendingDevices(),
+                dispatcher.sendFailureCount());
+    }
+}
@@ -0,0 +1,223 @@
+package other;
+
+// FIXME rename package
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// 类：FrameArchive，上行原始数据的二进制归档格式
+// 一个归档是一个目录，数据按顺序写入 segment-000001.qfa、segment-000002.qfa ……，单个文件不超过 maxSegmentBytes，
+// 便于整文件 mmap（MappedByteBuffer 最大 2GB）并按文件并行回放。所有整数均为小端序。
+//   段文件：magic "QPFA"(4) 版本(1) 保留(3)，之后为连续的记录
+//   记录：帧长度(4) 接收时间毫秒(8) 设备号长度(1) 设备号 UTF-8 帧原始数据
+//   索引（可选，segment-000001.qfi）：每条记录一项，设备号长度(1) 设备号 记录在段文件中的位置(4)
+// 写入进程异常退出时段文件末尾可能有不完整的记录，读取时忽略。
+public class FrameArchive {
+
+    public static final int MAGIC = 0x41465051; // "QPFA"
+    public static final int VERSION = 1;
+    public static final int SEGMENT_HEADER_LEN = 8;
+    public static final int RECORD_HEADER_LEN = 4 + 8 + 1;
+
+    static final String SEGMENT_SUFFIX = ".qfa";
+    static final String INDEX_SUFFIX = ".qfi";
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    // 类：Record，readRecord 读出的一条记录，帧数据为 segment[frameOffset, frameOffset+frameLength)
+    public static class Record {
+        public long receivedMillis;
+        public String deviceId;
+        public int frameOffset;
+        public int frameLength;
+    }
+
+    // 方法：按序号顺序列出目录中的段文件
+    public static List<Path> segments(Path dir) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(FrameArchive::isSegment).sorted().forEach(segments::add);
+        }
+        return segments;
+    }
+
+    // 方法：段文件对应的索引文件，不一定存在
+    public static Path indexFile(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    // 方法：检查段文件头，返回第一条记录的位置
+    public static int checkHeader(ByteBuffer segment) throws IOException {
+        if (segment.limit() < SEGMENT_HEADER_LEN || segment.getInt(0) != MAGIC) {
+            throw new IOException("不是帧归档文件");
+        }
+        if ((segment.get(4) & 0xFF) != VERSION) {
+            throw new IOException("不支持的帧归档版本：" + (segment.get(4) & 0xFF));
+        }
+        return SEGMENT_HEADER_LEN;
+    }
+
+    // 方法：读取 pos 处的记录，返回下一条记录的位置；剩余数据不足一条完整记录时返回 -1
+    // segment 须为小端序，idBuffer 用于拷贝设备号，长度至少 255
+    public static int readRecord(ByteBuffer segment, int pos, byte[] idBuffer, Record out) {
+        int limit = segment.limit();
+        if (limit - pos < RECORD_HEADER_LEN) {
+            return -1;
+        }
+        int frameLength = segment.getInt(pos);
+        int idLength = segment.get(pos + 12) & 0xFF;
+        int frameOffset = pos + RECORD_HEADER_LEN + idLength;
+        if (frameLength < 0 || frameOffset > limit || limit - frameOffset < frameLength) {
+            return -1;
+        }
+        out.receivedMillis = segment.getLong(pos + 4);
+        segment.get(pos + RECORD_HEADER_LEN, idBuffer, 0, idLength);
+        out.deviceId = new String(idBuffer, 0, idLength, StandardCharsets.UTF_8);
+        out.frameOffset = frameOffset;
+        out.frameLength = frameLength;
+        return frameOffset + frameLength;
+    }
+
+    // 类：Writer，顺序追加记录，段文件写满后换下一个；非线程安全
+    public static class Writer implements Closeable {
+        private final Path dir;
+        private final long maxSegmentBytes;
+        private final boolean writeIndex;
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        private final ByteBuffer indexBuffer = ByteBuffer.allocate(16 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+        private int nextSegment;
+        private FileChannel segment;
+        private FileChannel index;
+        // 当前段文件已写入（含缓冲区中）的字节数
+        private long segmentBytes;
+
+        public Writer(Path dir) throws IOException {
+            this(dir, 64L * 1024 * 1024, true);
+        }
+
+        // maxSegmentBytes：单个段文件的上限，不超过 Integer.MAX_VALUE；writeIndex：是否同时写设备索引
+        public Writer(Path dir, long maxSegmentBytes, boolean writeIndex) throws IOException {
+            if (maxSegmentBytes < SEGMENT_HEADER_LEN + RECORD_HEADER_LEN || maxSegmentBytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("maxSegmentBytes out of range: " + maxSegmentBytes);
+            }
+            this.dir = dir;
+            this.maxSegmentBytes = maxSegmentBytes;
+            this.writeIndex = writeIndex;
+            Files.createDirectories(dir);
+
+            // 接着目录中已有的段文件编号，不覆盖旧数据
+            List<Path> existing = segments(dir);
+            if (!existing.isEmpty()) {
+                String name = existing.get(existing.size() - 1).getFileName().toString();
+                nextSegment = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            }
+        }
+
+        public void append(String deviceId, long receivedMillis, byte[] frame) throws IOException {
+            append(deviceId, receivedMillis, frame, 0, frame.length);
+        }
+
+        // 方法：追加一条记录，frame[offset, offset+len) 为 MQTT 收到的原始数据
+        public void append(String deviceId, long receivedMillis, byte[] frame, int offset, int len) throws IOException {
+            byte[] id = deviceId.getBytes(StandardCharsets.UTF_8);
+            if (id.length > 255) {
+                throw new IllegalArgumentException("deviceId too long: " + deviceId);
+            }
+            int recordLength = RECORD_HEADER_LEN + id.length + len;
+            if (SEGMENT_HEADER_LEN + (long) recordLength > maxSegmentBytes) {
+                throw new IllegalArgumentException("frame larger than segment: " + len);
+            }
+            if (segment == null || segmentBytes + recordLength > maxSegmentBytes) {
+                roll();
+            }
+
+            if (writeIndex) {
+                if (indexBuffer.remaining() < 1 + id.length + 4) {
+                    flush(index, indexBuffer);
+                }
+                indexBuffer.put((byte) id.length).put(id).putInt((int) segmentBytes);
+            }
+
+            if (buffer.remaining() < RECORD_HEADER_LEN + id.length) {
+                flush(segment, buffer);
+            }
+            buffer.putInt(len).putLong(receivedMillis).put((byte) id.length).put(id);
+            // 帧数据比缓冲区剩余空间大时分段写入
+            while (len > 0) {
+                if (!buffer.hasRemaining()) {
+                    flush(segment, buffer);
+                }
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(frame, offset, n);
+                offset += n;
+                len -= n;
+            }
+            segmentBytes += recordLength;
+        }
+
+        // 方法：把缓冲区写入文件（不调用 fsync）
+        public void flush() throws IOException {
+            if (segment != null) {
+                flush(segment, buffer);
+                if (index != null) {
+                    flush(index, indexBuffer);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            closeSegment();
+        }
+
+        private void roll() throws IOException {
+            flush();
+            closeSegment();
+
+            nextSegment++;
+            Path path = dir.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, nextSegment, SEGMENT_SUFFIX));
+            segment = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            if (writeIndex) {
+                index = FileChannel.open(indexFile(path), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+            buffer.putInt(MAGIC).put((byte) VERSION).put((byte) 0).put((byte) 0).put((byte) 0);
+            segmentBytes = SEGMENT_HEADER_LEN;
+        }
+
+        private void closeSegment() throws IOException {
+            if (segment != null) {
+                segment.close();
+                segment = null;
+            }
+            if (index != null) {
+                index.close();
+                index = null;
+            }
+        }
+
+        private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
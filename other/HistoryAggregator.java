@@ -0,0 +1,333 @@
+package other;
+
+// FIXME rename package
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// 类：HistoryAggregator，历史数据按时间桶降采样
+// 解码器通过 HistoryCursor 逐条推入记录，这里按设备、按字段累计每个时间桶的条数、最小、最大、总和，
+// 记录跨入下一个桶时把上一个桶交给 BucketListener。可同时维护多个粒度（如 60 秒和 3600 秒）。
+// 所有状态保存在按设备槽位展开的基本类型数组中，推入记录和输出桶都不创建对象。
+// 每个设备只保留一个打开的桶，早于当前桶的记录（乱序补传）计入 lateCount 后丢弃。
+// 非线程安全，多线程解码时每个分区使用一个实例（同一设备的数据固定在同一分区）。
+public class HistoryAggregator {
+
+    // 回调：bucket 是复用的视图，只在回调期间有效
+    public interface BucketListener {
+        void onBucket(String deviceId, Bucket bucket);
+    }
+
+    // 字段标志位数，下标即 Integer.numberOfTrailingZeros(field)，第 0 位为时间戳，不参与聚合
+    private static final int METRICS = 16;
+    private static final int VALUE_FIELDS = ~HistoryCursor.TIMESTAMP & ((1 << METRICS) - 1);
+    private static final int NO_BUCKET = Integer.MIN_VALUE;
+
+    private final int[] bucketSeconds;
+    private final BucketListener listener;
+    private final Bucket view = new Bucket();
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private String[] deviceIds;
+    private int devices;
+
+    // 以下按 桶 = 设备槽位 * 粒度数 + 粒度 展开
+    private int[] bucketStart;
+    private int[] bucketPresent;
+    // 以下按 桶 * METRICS + 字段下标 展开
+    private int[] count;
+    private double[] min;
+    private double[] max;
+    private double[] sum;
+
+    private long sampleCount;
+    private long lateCount;
+    private long emittedCount;
+
+    // bucketSeconds：各粒度的桶长度（秒），如 60, 3600
+    public HistoryAggregator(BucketListener listener, int... bucketSeconds) {
+        if (bucketSeconds.length == 0) {
+            throw new IllegalArgumentException("at least one bucket size required");
+        }
+        for (int seconds : bucketSeconds) {
+            if (seconds < 1) {
+                throw new IllegalArgumentException("bucket size must be positive: " + seconds);
+            }
+        }
+        this.listener = listener;
+        this.bucketSeconds = bucketSeconds.clone();
+        allocate(64);
+    }
+
+    // 类：Bucket，一个已关闭的时间桶，field 为 HistoryCursor 中的单个字段标志
+    public final class Bucket {
+        private int bucket;
+        private int level;
+
+        // 桶长度（秒）
+        public int bucketSeconds() {
+            return bucketSeconds[level];
+        }
+
+        // 桶起始时间戳，桶覆盖 [start, start + bucketSeconds)
+        public int start() {
+            return bucketStart[bucket];
+        }
+
+        // 桶内出现过的字段
+        public int present() {
+            return bucketPresent[bucket];
+        }
+
+        public boolean has(int field) {
+            return (bucketPresent[bucket] & field) != 0;
+        }
+
+        public int count(int field) {
+            return count[index(field)];
+        }
+
+        public double min(int field) {
+            return min[index(field)];
+        }
+
+        public double max(int field) {
+            return max[index(field)];
+        }
+
+        public double sum(int field) {
+            return sum[index(field)];
+        }
+
+        public double avg(int field) {
+            int i = index(field);
+            return count[i] == 0 ? Double.NaN : sum[i] / count[i];
+        }
+
+        private int index(int field) {
+            return bucket * METRICS + Integer.numberOfTrailingZeros(field);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("{start=").append(start()).append(", seconds=").append(bucketSeconds());
+            for (int p = present() & VALUE_FIELDS; p != 0; p &= p - 1) {
+                int i = bucket * METRICS + Integer.numberOfTrailingZeros(p);
+                sb.append(", ").append(Integer.numberOfTrailingZeros(p))
+                        .append("=[n=").append(count[i]).append(" min=").append(min[i])
+                        .append(" max=").append(max[i]).append(" avg=").append(sum[i] / count[i]).append(']');
+            }
+            return sb.append('}').toString();
+        }
+    }
+
+    // 方法：推入游标剩余的全部记录，返回推入的条数
+    public int addAll(String deviceId, HistoryCursor cursor) {
+        int slot = slot(deviceId);
+        int n = 0;
+        while (cursor.next()) {
+            add(slot, cursor);
+            n++;
+        }
+        return n;
+    }
+
+    // 方法：推入游标当前记录，没有时间戳的记录忽略
+    public void add(String deviceId, HistoryCursor cursor) {
+        add(slot(deviceId), cursor);
+    }
+
+    private void add(int slot, HistoryCursor cursor) {
+        if (!cursor.has(HistoryCursor.TIMESTAMP)) {
+            return;
+        }
+        sampleCount++;
+        int timestamp = cursor.timestamp();
+        int present = cursor.present() & VALUE_FIELDS;
+        boolean late = false;
+        for (int level = 0; level < bucketSeconds.length; level++) {
+            int bucket = open(slot, level, timestamp);
+            if (bucket < 0) {
+                late = true;
+                continue;
+            }
+            bucketPresent[bucket] |= present;
+            for (int p = present; p != 0; p &= p - 1) {
+                accumulate(bucket * METRICS + Integer.numberOfTrailingZeros(p), cursor.value(p & -p));
+            }
+        }
+        if (late) {
+            lateCount++;
+        }
+    }
+
+    // 方法：推入单个字段的值，field 为 HistoryCursor 中的单个字段标志
+    public void add(String deviceId, int timestamp, int field, double value) {
+        if ((field & VALUE_FIELDS) == 0 || Integer.bitCount(field) != 1) {
+            throw new IllegalArgumentException("not a value field: " + field);
+        }
+        int slot = slot(deviceId);
+        sampleCount++;
+        boolean late = false;
+        for (int level = 0; level < bucketSeconds.length; level++) {
+            int bucket = open(slot, level, timestamp);
+            if (bucket < 0) {
+                late = true;
+                continue;
+            }
+            bucketPresent[bucket] |= field;
+            accumulate(bucket * METRICS + Integer.numberOfTrailingZeros(field), value);
+        }
+        if (late) {
+            lateCount++;
+        }
+    }
+
+    // 方法：关闭结束时间不晚于 timestamp 的桶，用于长时间没有新数据的设备
+    public void flush(int timestamp) {
+        for (int slot = 0; slot < devices; slot++) {
+            for (int level = 0; level < bucketSeconds.length; level++) {
+                int bucket = slot * bucketSeconds.length + level;
+                if (bucketStart[bucket] != NO_BUCKET && (long) bucketStart[bucket] + bucketSeconds[level] <= timestamp) {
+                    emit(slot, level, bucket);
+                }
+            }
+        }
+    }
+
+    // 方法：关闭所有打开的桶
+    public void flushAll() {
+        for (int slot = 0; slot < devices; slot++) {
+            for (int level = 0; level < bucketSeconds.length; level++) {
+                int bucket = slot * bucketSeconds.length + level;
+                if (bucketStart[bucket] != NO_BUCKET) {
+                    emit(slot, level, bucket);
+                }
+            }
+        }
+    }
+
+    public int deviceCount() {
+        return devices;
+    }
+
+    public long sampleCount() {
+        return sampleCount;
+    }
+
+    // 至少在一个粒度上早于当前桶而被丢弃的记录数
+    public long lateCount() {
+        return lateCount;
+    }
+
+    public long emittedCount() {
+        return emittedCount;
+    }
+
+    // 返回 timestamp 所在的桶，必要时先关闭当前桶；timestamp 早于当前桶时返回 -1
+    private int open(int slot, int level, int timestamp) {
+        int bucket = slot * bucketSeconds.length + level;
+        int start = timestamp - Math.floorMod(timestamp, bucketSeconds[level]);
+        int current = bucketStart[bucket];
+        if (current == start) {
+            return bucket;
+        }
+        if (current != NO_BUCKET) {
+            if (start < current) {
+                return -1;
+            }
+            emit(slot, level, bucket);
+        }
+        bucketStart[bucket] = start;
+        bucketPresent[bucket] = 0;
+        Arrays.fill(count, bucket * METRICS, bucket * METRICS + METRICS, 0);
+        return bucket;
+    }
+
+    private void accumulate(int i, double value) {
+        if (count[i]++ == 0) {
+            min[i] = value;
+            max[i] = value;
+            sum[i] = value;
+        } else {
+            if (value < min[i]) min[i] = value;
+            if (value > max[i]) max[i] = value;
+            sum[i] += value;
+        }
+    }
+
+    private void emit(int slot, int level, int bucket) {
+        if (bucketPresent[bucket] != 0) {
+            view.bucket = bucket;
+            view.level = level;
+            emittedCount++;
+            listener.onBucket(deviceIds[slot], view);
+        }
+        bucketStart[bucket] = NO_BUCKET;
+    }
+
+    private int slot(String deviceId) {
+        Integer slot = slots.get(deviceId);
+        if (slot != null) {
+            return slot;
+        }
+        if (devices == deviceIds.length) {
+            allocate(devices * 2);
+        }
+        int created = devices++;
+        deviceIds[created] = deviceId;
+        slots.put(deviceId, created);
+        return created;
+    }
+
+    private void allocate(int deviceCapacity) {
+        int buckets = deviceCapacity * bucketSeconds.length;
+        int old = deviceIds == null ? 0 : deviceIds.length * bucketSeconds.length;
+        deviceIds = deviceIds == null ? new String[deviceCapacity] : Arrays.copyOf(deviceIds, deviceCapacity);
+        bucketStart = bucketStart == null ? new int[buckets] : Arrays.copyOf(bucketStart, buckets);
+        Arrays.fill(bucketStart, old, buckets, NO_BUCKET);
+        bucketPresent = bucketPresent == null ? new int[buckets] : Arrays.copyOf(bucketPresent, buckets);
+        count = count == null ? new int[buckets * METRICS] : Arrays.copyOf(count, buckets * METRICS);
+        min = min == null ? new double[buckets * METRICS] : Arrays.copyOf(min, buckets * METRICS);
+        max = max == null ? new double[buckets * METRICS] : Arrays.copyOf(max, buckets * METRICS);
+        sum = sum == null ? new double[buckets * METRICS] : Arrays.copyOf(sum, buckets * METRICS);
+    }
+
+    // 主方法：1000 台设备各上传 6 小时、每分钟一条的温湿度历史数据，按 1 分钟、1 小时聚合
+    public static void main(String[] args) {
+        int devices = 1000;
+        int records = 30;
+        long[] buckets = new long[2];
+        HistoryAggregator aggregator = new HistoryAggregator((deviceId, bucket) ->
+                buckets[bucket.bucketSeconds() == 60 ? 0 : 1]++, 60, 3600);
+
+        // 0x03 子包：时间戳(4) 间隔(2) 之后每条 6 字节，温湿度 3 字节、气压 2 字节、电量 1 字节
+        byte[] history = new byte[6 + records * 6];
+        HistoryCursor cursor = new HistoryCursor();
+        int base = 1783653360;
+        long start = System.nanoTime();
+        long samples = 0;
+        for (int upload = 0; upload < 12; upload++) {
+            int timestamp = base + upload * records * 60;
+            int pos = HistoryFixture.writeHeader(history, 0, timestamp, 60);
+            for (int i = 0; i < records; i++) {
+                int temperature = 500 + 200 + (upload * records + i) % 50;
+                int humidity = 450 + i % 100;
+                pos = HistoryFixture.writeRecord(history, pos, temperature, humidity, 10132, 90);
+            }
+            for (int d = 0; d < devices; d++) {
+                samples += aggregator.addAll("mac" + d, cursor.resetHistory(history, 0, history.length, 0x41));
+            }
+        }
+        aggregator.flushAll();
+        long cost = System.nanoTime() - start;
+
+        HistoryAggregator sample = new HistoryAggregator((deviceId, bucket) -> System.out.println(deviceId + " " + bucket), 3600);
+        sample.addAll("mac0", cursor.resetHistory(history, 0, history.length, 0x41));
+        sample.flushAll();
+
+        System.out.printf("samples=%d minuteBuckets=%d hourBuckets=%d late=%d %.0f samples/s%n",
+                samples, buckets[0], buckets[1], aggregator.lateCount(), samples * 1e9 / cost);
+    }
+}
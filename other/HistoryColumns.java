@@ -0,0 +1,215 @@
+package other;
+
+// FIXME rename package
+
+import java.util.Arrays;
+
+// 类：HistoryColumns，按列存放的历史数据
+// 每个字段一个基本类型数组，第 i 行即第 i 条记录；每列另有一个存在位图，has(field, row) 查询。
+// 由 HistoryCursor 直接填充，不创建 SensorData。实例可重复使用，clear() 后容量保留，不够时自动扩容。
+public class HistoryColumns {
+
+    private static final int INITIAL_CAPACITY = 64;
+    // 与 HistoryCursor 字段标志的位数一致
+    private static final int COLUMN_COUNT = 16;
+
+    public int size;
+    // 所有行中出现过的字段
+    public int columns;
+
+    public int[] timestamps;
+    public float[] temperature;
+    public float[] humidity;
+    public float[] probTemperature;
+    public float[] probHumidity;
+    public float[] co2Percent;
+    public float[] pressure;
+    public float[] valveOpen;
+    public int[] co2;
+    public int[] pm25;
+    public int[] pm10;
+    public int[] tvoc;
+    public int[] noise;
+    public int[] light;
+    public short[] battery;
+    public short[] rssi;
+
+    // 下标为字段标志的位序号，每列 (capacity + 63) / 64 个 long
+    private final long[][] presence = new long[COLUMN_COUNT][];
+    private int capacity;
+
+    public HistoryColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public HistoryColumns(int capacity) {
+        allocate(Math.max(capacity, 1));
+    }
+
+    // 方法：清空数据，保留已分配的数组
+    public HistoryColumns clear() {
+        int words = (size + 63) >>> 6;
+        for (long[] bits : presence) {
+            Arrays.fill(bits, 0, words, 0L);
+        }
+        size = 0;
+        columns = 0;
+        return this;
+    }
+
+    // 方法：把游标剩余的记录全部追加到末尾
+    public HistoryColumns addAll(HistoryCursor cursor) {
+        while (cursor.next()) {
+            add(cursor);
+        }
+        return this;
+    }
+
+    // 方法：追加游标当前记录，不存在的字段写 0
+    public void add(HistoryCursor cursor) {
+        int present = cursor.present();
+        int row = addRow(present);
+
+        timestamps[row] = cursor.timestamp();
+        temperature[row] = (present & HistoryCursor.TEMPERATURE) != 0 ? (float) cursor.temperature() : 0f;
+        humidity[row] = (present & HistoryCursor.HUMIDITY) != 0 ? (float) cursor.humidity() : 0f;
+        probTemperature[row] = (present & HistoryCursor.PROB_TEMPERATURE) != 0 ? (float) cursor.probTemperature() : 0f;
+        probHumidity[row] = (present & HistoryCursor.PROB_HUMIDITY) != 0 ? (float) cursor.probHumidity() : 0f;
+        co2Percent[row] = (present & HistoryCursor.CO2_PERCENT) != 0 ? (float) cursor.co2Percent() : 0f;
+        pressure[row] = (present & HistoryCursor.PRESSURE) != 0 ? (float) cursor.pressure() : 0f;
+        valveOpen[row] = (present & HistoryCursor.VALVE_OPEN) != 0 ? (float) cursor.valveOpen() : 0f;
+        co2[row] = (present & HistoryCursor.CO2) != 0 ? cursor.co2() : 0;
+        pm25[row] = (present & HistoryCursor.PM25) != 0 ? cursor.pm25() : 0;
+        pm10[row] = (present & HistoryCursor.PM10) != 0 ? cursor.pm10() : 0;
+        tvoc[row] = (present & HistoryCursor.TVOC) != 0 ? cursor.tvoc() : 0;
+        noise[row] = (present & HistoryCursor.NOISE) != 0 ? cursor.noise() : 0;
+        light[row] = (present & HistoryCursor.LIGHT) != 0 ? cursor.light() : 0;
+        battery[row] = (present & HistoryCursor.BATTERY) != 0 ? (short) cursor.battery() : 0;
+        rssi[row] = (present & HistoryCursor.RSSI) != 0 ? (short) cursor.rssi() : 0;
+    }
+
+    // 方法：追加一行并记录该行出现的字段，返回行号；各列的值由调用方写入，未写的列保留数组中原有的值
+    public int addRow(int present) {
+        if (size == capacity) {
+            allocate(capacity * 2);
+        }
+        int row = size++;
+        columns |= present;
+
+        int word = row >>> 6;
+        long bit = 1L << row;
+        for (int p = present; p != 0; p &= p - 1) {
+            presence[Integer.numberOfTrailingZeros(p)][word] |= bit;
+        }
+        return row;
+    }
+
+    // 方法：按字段标志读取第 row 行的值，field 为单个字段标志，TIMESTAMP 返回时间戳
+    public double get(int field, int row) {
+        switch (field) {
+            case HistoryCursor.TIMESTAMP: return timestamps[row];
+            case HistoryCursor.TEMPERATURE: return temperature[row];
+            case HistoryCursor.HUMIDITY: return humidity[row];
+            case HistoryCursor.PROB_TEMPERATURE: return probTemperature[row];
+            case HistoryCursor.PROB_HUMIDITY: return probHumidity[row];
+            case HistoryCursor.CO2_PERCENT: return co2Percent[row];
+            case HistoryCursor.PRESSURE: return pressure[row];
+            case HistoryCursor.CO2: return co2[row];
+            case HistoryCursor.PM25: return pm25[row];
+            case HistoryCursor.PM10: return pm10[row];
+            case HistoryCursor.TVOC: return tvoc[row];
+            case HistoryCursor.NOISE: return noise[row];
+            case HistoryCursor.LIGHT: return light[row];
+            case HistoryCursor.BATTERY: return battery[row];
+            case HistoryCursor.VALVE_OPEN: return valveOpen[row];
+            case HistoryCursor.RSSI: return rssi[row];
+            default: throw new IllegalArgumentException("unknown field: " + field);
+        }
+    }
+
+    // 方法：按字段标志写入第 row 行的值，整数列截断小数部分
+    public void set(int field, int row, double value) {
+        switch (field) {
+            case HistoryCursor.TIMESTAMP: timestamps[row] = (int) value; break;
+            case HistoryCursor.TEMPERATURE: temperature[row] = (float) value; break;
+            case HistoryCursor.HUMIDITY: humidity[row] = (float) value; break;
+            case HistoryCursor.PROB_TEMPERATURE: probTemperature[row] = (float) value; break;
+            case HistoryCursor.PROB_HUMIDITY: probHumidity[row] = (float) value; break;
+            case HistoryCursor.CO2_PERCENT: co2Percent[row] = (float) value; break;
+            case HistoryCursor.PRESSURE: pressure[row] = (float) value; break;
+            case HistoryCursor.CO2: co2[row] = (int) value; break;
+            case HistoryCursor.PM25: pm25[row] = (int) value; break;
+            case HistoryCursor.PM10: pm10[row] = (int) value; break;
+            case HistoryCursor.TVOC: tvoc[row] = (int) value; break;
+            case HistoryCursor.NOISE: noise[row] = (int) value; break;
+            case HistoryCursor.LIGHT: light[row] = (int) value; break;
+            case HistoryCursor.BATTERY: battery[row] = (short) value; break;
+            case HistoryCursor.VALVE_OPEN: valveOpen[row] = (float) value; break;
+            case HistoryCursor.RSSI: rssi[row] = (short) value; break;
+            default: throw new IllegalArgumentException("unknown field: " + field);
+        }
+    }
+
+    // 方法：第 row 行是否有 field 字段，field 为 HistoryCursor 中的字段标志
+    public boolean has(int field, int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+        }
+        return (presence[Integer.numberOfTrailingZeros(field)][row >>> 6] & (1L << row)) != 0;
+    }
+
+    // 方法：整列是否每行都有 field 字段
+    public boolean hasAll(int field) {
+        long[] bits = presence[Integer.numberOfTrailingZeros(field)];
+        int full = size >>> 6;
+        for (int i = 0; i < full; i++) {
+            if (bits[i] != -1L) {
+                return false;
+            }
+        }
+        int rest = size & 63;
+        return rest == 0 || bits[full] == (1L << rest) - 1;
+    }
+
+    private void allocate(int newCapacity) {
+        timestamps = timestamps == null ? new int[newCapacity] : Arrays.copyOf(timestamps, newCapacity);
+        temperature = grow(temperature, newCapacity);
+        humidity = grow(humidity, newCapacity);
+        probTemperature = grow(probTemperature, newCapacity);
+        probHumidity = grow(probHumidity, newCapacity);
+        co2Percent = grow(co2Percent, newCapacity);
+        pressure = grow(pressure, newCapacity);
+        valveOpen = grow(valveOpen, newCapacity);
+        co2 = grow(co2, newCapacity);
+        pm25 = grow(pm25, newCapacity);
+        pm10 = grow(pm10, newCapacity);
+        tvoc = grow(tvoc, newCapacity);
+        noise = grow(noise, newCapacity);
+        light = grow(light, newCapacity);
+        battery = battery == null ? new short[newCapacity] : Arrays.copyOf(battery, newCapacity);
+        rssi = rssi == null ? new short[newCapacity] : Arrays.copyOf(rssi, newCapacity);
+
+        int words = (newCapacity + 63) >>> 6;
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            presence[i] = presence[i] == null ? new long[words] : Arrays.copyOf(presence[i], words);
+        }
+        capacity = newCapacity;
+    }
+
+    private static float[] grow(float[] column, int newCapacity) {
+        return column == null ? new float[newCapacity] : Arrays.copyOf(column, newCapacity);
+    }
+
+    private static int[] grow(int[] column, int newCapacity) {
+        return column == null ? new int[newCapacity] : Arrays.copyOf(column, newCapacity);
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "size=" + size +
+                ", columns=0x" + Integer.toHexString(columns) +
+                ", timestamps=" + Arrays.toString(Arrays.copyOf(timestamps, size)) +
+                '}';
+    }
+}
@@ -0,0 +1,712 @@
+package other;
+
+// FIXME rename package
+
+import java.util.List;
+
+// 类：HistoryCursor，历史数据游标
+// 在原始数据帧上逐条读取 0x03 / 0x33 / 0x85 历史记录（以及 LoRa 数据帧的定长记录），字段以基本类型返回，遍历过程中不创建任何对象
+// 游标可重复使用，调用 reset 系列方法后用 next() 逐条前进
+public class HistoryCursor {
+
+    // 字段存在标志，配合 has() 使用
+    public static final int TIMESTAMP = 1;
+    public static final int TEMPERATURE = 1 << 1;
+    public static final int HUMIDITY = 1 << 2;
+    public static final int PROB_TEMPERATURE = 1 << 3;
+    public static final int PROB_HUMIDITY = 1 << 4;
+    public static final int CO2_PERCENT = 1 << 5;
+    public static final int PRESSURE = 1 << 6;
+    public static final int CO2 = 1 << 7;
+    public static final int PM25 = 1 << 8;
+    public static final int PM10 = 1 << 9;
+    public static final int TVOC = 1 << 10;
+    public static final int NOISE = 1 << 11;
+    public static final int LIGHT = 1 << 12;
+    public static final int BATTERY = 1 << 13;
+    public static final int VALVE_OPEN = 1 << 14;
+    public static final int RSSI = 1 << 15;
+
+    private byte[] buf;
+    private int productId;
+
+    // 当前 0x03 / 0x33 子包的状态
+    private int historyPos;
+    private int historyEnd;
+    private int baseTimestamp;
+    private int duration;
+    private int packLen;
+    private int recordIndex;
+    // 实时数据记录之后信号强度字节的位置，-1 表示没有
+    private int rssiPos = -1;
+    // 不为 null 时当前记录为该机型的 LoRa 记录
+    private LoraDecoder.Model loraModel;
+
+    // 不为 null 时按 dedup 过滤 0x03 / 0x33 / LoRa 记录，keep 第 k 位表示本段第 k 条记录是新记录
+    private HistoryDedup dedup;
+    private long dedupKey;
+    private boolean filtering;
+    private long[] keep = new long[4];
+
+    // 当前 0x85 记录，单条记录只读一次
+    private int v2Offset;
+    private int v2Len;
+    private boolean v2Pending;
+
+    // 整帧遍历时的子包列表（frame 或 tlvFrame 二选一）及帧级电量、信号
+    private TLVDecoder.TlvSubPackList frame;
+    private TlvFrame tlvFrame;
+    private boolean frameFields;
+    private int subIndex;
+    private int frameBattery = -1;
+    private int frameRssi;
+
+    // 当前记录
+    private boolean v2;
+    private int present;
+    private int timestamp;
+    private double temperature;
+    private double humidity;
+    private double probTemperature;
+    private double probHumidity;
+    private double co2Percent;
+    private double pressure;
+    private int co2;
+    private int pm25;
+    private int pm10;
+    private int tvoc;
+    private int noise;
+    private int light;
+    private int battery;
+    private double valveOpen;
+    private int rssi;
+
+    // 方法：遍历整帧中所有 0x03 / 0x33 / 0x85 子包，帧级 0x64 电量、0x65 信号按 tlvDecode 的规则合入每条记录
+    public HistoryCursor reset(TLVDecoder.TlvSubPackList frame) {
+        clear();
+        this.frame = frame;
+        this.frameFields = true;
+        this.productId = frame.productId;
+
+        List<TLVDecoder.SubPack> subPackList = frame.subPackList;
+        for (int i = 0; i < subPackList.size(); i++) {
+            TLVDecoder.SubPack subPack = subPackList.get(i);
+            switch (subPack.keyByte) {
+                case 0x64:
+                    frameBattery = subPack.payload[subPack.offset];
+                    break;
+                case 0x65:
+                    frameRssi = subPack.payload[subPack.offset];
+                    break;
+                default:
+                    break;
+            }
+        }
+        return this;
+    }
+
+    // 方法：同上，遍历 TlvFrame 索引的整帧
+    public HistoryCursor reset(TlvFrame frame) {
+        clear();
+        this.tlvFrame = frame;
+        this.frameFields = true;
+        this.productId = frame.productId();
+
+        byte[] byteArray = frame.buffer();
+        for (int i = 0; i < frame.size(); i++) {
+            switch (frame.key(i)) {
+                case 0x64:
+                    frameBattery = byteArray[frame.offset(i)];
+                    break;
+                case 0x65:
+                    frameRssi = byteArray[frame.offset(i)];
+                    break;
+                default:
+                    break;
+            }
+        }
+        return this;
+    }
+
+    // 方法：遍历单个 0x03 子包 byteArray[offset, offset+len)
+    public HistoryCursor resetHistory(byte[] byteArray, int offset, int len, int productId) {
+        clear();
+        startHistory(byteArray, offset, len, productId, historyRecordSize(productId, len));
+        return this;
+    }
+
+    // 方法：读取 0x14 实时数据子包 byteArray[offset, offset+len) 中的 Robb / FrogS 记录
+    // 时间戳(4) 之后为 recordLen 字节与历史记录相同格式的数据，紧跟 1 字节信号强度；只有一条记录
+    public HistoryCursor resetRealtime(byte[] byteArray, int offset, int len, int recordLen) {
+        clear();
+        this.buf = byteArray;
+        this.historyEnd = offset + Math.min(len, 4 + recordLen);
+        this.baseTimestamp = readInt(offset, 4, historyEnd);
+        this.duration = 0;
+        this.historyPos = offset + 4;
+        this.packLen = recordLen;
+        this.recordIndex = 0;
+        this.rssiPos = offset + 4 + recordLen < offset + len ? offset + 4 + recordLen : -1;
+        return this;
+    }
+
+    // 方法：遍历单个 0x33 子包 byteArray[offset, offset+len)，记录为 8 字节
+    public HistoryCursor resetHistory8(byte[] byteArray, int offset, int len) {
+        clear();
+        startHistory(byteArray, offset, len, 0, 8);
+        return this;
+    }
+
+    // 方法：遍历 LoRa 数据帧 byteArray[offset, offset+len) 中的定长记录，末尾不足一条的字节忽略
+    // 第 i 条记录的时间戳为 timestamp + i * interval
+    public HistoryCursor resetLora(LoraDecoder.Model model, byte[] byteArray, int offset, int len, int timestamp, int interval) {
+        clear();
+        this.buf = byteArray;
+        this.loraModel = model;
+        this.historyPos = offset;
+        this.historyEnd = offset + len / model.recordSize * model.recordSize;
+        this.baseTimestamp = timestamp;
+        this.duration = interval;
+        this.packLen = model.recordSize;
+        this.recordIndex = 0;
+        return this;
+    }
+
+    // 方法：读取单条 0x85 记录 byteArray[offset, offset+len)
+    public HistoryCursor resetV2(byte[] byteArray, int offset, int len) {
+        clear();
+        startV2(byteArray, offset, len);
+        return this;
+    }
+
+    // 方法：在 reset 系列方法之后调用，之后的 0x03 / 0x33 / LoRa 记录先按子包头查 dedup，只返回未接收过的记录
+    // 整段都已接收过时不读取任何记录；0x85 单条记录不过滤
+    public HistoryCursor dedup(HistoryDedup dedup, String deviceId) {
+        this.dedup = dedup;
+        this.dedupKey = HistoryDedup.key(deviceId);
+        // resetHistory / resetLora 已经开始读取记录段
+        if (historyPos < historyEnd && recordIndex == 0) {
+            applyDedup();
+        }
+        return this;
+    }
+
+    private void applyDedup() {
+        int count = (historyEnd - historyPos + packLen - 1) / packLen;
+        int words = (count + 63) >>> 6;
+        if (keep.length < words) {
+            keep = new long[words];
+        }
+        if (dedup.filter(dedupKey, baseTimestamp, duration, count, keep) == 0) {
+            historyPos = historyEnd;
+        }
+        filtering = true;
+    }
+
+    // 方法：前进到下一条记录，没有更多记录时返回 false
+    public boolean next() {
+        while (true) {
+            if (historyPos < historyEnd) {
+                if (filtering && (keep[recordIndex >>> 6] & (1L << recordIndex)) == 0) {
+                    // 已接收过的记录直接跳过，不读取内容
+                    historyPos += packLen;
+                    recordIndex++;
+                    continue;
+                }
+                readHistoryRecord();
+                return true;
+            }
+
+            if (v2Pending) {
+                v2Pending = false;
+                readV2Record();
+                return true;
+            }
+
+            if (frame != null && subIndex < frame.subPackList.size()) {
+                TLVDecoder.SubPack subPack = frame.subPackList.get(subIndex++);
+                startSubPack(subPack.keyByte, subPack.payload, subPack.offset, subPack.len);
+            } else if (tlvFrame != null && subIndex < tlvFrame.size()) {
+                int i = subIndex++;
+                startSubPack(tlvFrame.key(i), tlvFrame.buffer(), tlvFrame.offset(i), tlvFrame.length(i));
+            } else {
+                present = 0;
+                return false;
+            }
+        }
+    }
+
+    private void startSubPack(int key, byte[] byteArray, int offset, int len) {
+        switch (key) {
+            case 0x03:
+                startHistory(byteArray, offset, len, productId, historyRecordSize(productId, len));
+                break;
+            case 0x33:
+                startHistory(byteArray, offset, len, productId, 8);
+                break;
+            case 0x85:
+                startV2(byteArray, offset, len);
+                break;
+            default:
+                break;
+        }
+    }
+
+    public boolean has(int field) {
+        return (present & field) != 0;
+    }
+
+    public int present() {
+        return present;
+    }
+
+    // 0x85 记录返回 true，0x03 / 0x33 记录返回 false
+    public boolean isV2() {
+        return v2;
+    }
+
+    public int timestamp() {
+        return timestamp;
+    }
+
+    public double temperature() {
+        return temperature;
+    }
+
+    public double humidity() {
+        return humidity;
+    }
+
+    public double probTemperature() {
+        return probTemperature;
+    }
+
+    public double probHumidity() {
+        return probHumidity;
+    }
+
+    public double co2Percent() {
+        return co2Percent;
+    }
+
+    public double pressure() {
+        return pressure;
+    }
+
+    public int co2() {
+        return co2;
+    }
+
+    public int pm25() {
+        return pm25;
+    }
+
+    public int pm10() {
+        return pm10;
+    }
+
+    public int tvoc() {
+        return tvoc;
+    }
+
+    public int noise() {
+        return noise;
+    }
+
+    public int light() {
+        return light;
+    }
+
+    public int battery() {
+        return battery;
+    }
+
+    public double valveOpen() {
+        return valveOpen;
+    }
+
+    public int rssi() {
+        return rssi;
+    }
+
+    // 方法：按字段标志读取当前记录的值，field 为单个字段标志，TIMESTAMP 返回时间戳
+    public double value(int field) {
+        switch (field) {
+            case TIMESTAMP: return timestamp;
+            case TEMPERATURE: return temperature;
+            case HUMIDITY: return humidity;
+            case PROB_TEMPERATURE: return probTemperature;
+            case PROB_HUMIDITY: return probHumidity;
+            case CO2_PERCENT: return co2Percent;
+            case PRESSURE: return pressure;
+            case CO2: return co2;
+            case PM25: return pm25;
+            case PM10: return pm10;
+            case TVOC: return tvoc;
+            case NOISE: return noise;
+            case LIGHT: return light;
+            case BATTERY: return battery;
+            case VALVE_OPEN: return valveOpen;
+            case RSSI: return rssi;
+            default: throw new IllegalArgumentException("unknown field: " + field);
+        }
+    }
+
+    // 方法：把当前记录转换成 SensorData，供 List<SensorData> 接口使用
+    public TLVDecoder.SensorData toSensorData() {
+        TLVDecoder.SensorData sensorData = new TLVDecoder.SensorData();
+        if (!v2) {
+            sensorData.dataType = "data";
+        }
+        if (has(TIMESTAMP)) sensorData.timestamp = timestamp;
+        if (has(TEMPERATURE)) sensorData.temperature = temperature;
+        if (has(HUMIDITY)) sensorData.humidity = humidity;
+        if (has(PROB_TEMPERATURE)) sensorData.probTemperature = probTemperature;
+        if (has(PROB_HUMIDITY)) sensorData.probHumidity = probHumidity;
+        if (has(CO2_PERCENT)) sensorData.co2Percent = co2Percent;
+        if (has(PRESSURE)) sensorData.pressure = pressure;
+        if (has(CO2)) sensorData.co2 = co2;
+        if (has(PM25)) sensorData.pm25 = pm25;
+        if (has(PM10)) sensorData.pm10 = pm10;
+        if (has(TVOC)) sensorData.tvoc = tvoc;
+        if (has(NOISE)) sensorData.noise = noise;
+        if (has(LIGHT)) sensorData.light = light;
+        if (has(BATTERY)) sensorData.battery = battery;
+        if (has(VALVE_OPEN)) sensorData.valveOpen = valveOpen;
+        if (has(RSSI)) sensorData.rssi = rssi;
+        return sensorData;
+    }
+
+    private void clear() {
+        frame = null;
+        dedup = null;
+        filtering = false;
+        tlvFrame = null;
+        frameFields = false;
+        subIndex = 0;
+        frameBattery = -1;
+        frameRssi = 0;
+        historyPos = 0;
+        historyEnd = 0;
+        loraModel = null;
+        rssiPos = -1;
+        v2Pending = false;
+        present = 0;
+    }
+
+    private void startHistory(byte[] byteArray, int offset, int len, int productId, int packLen) {
+        this.buf = byteArray;
+        this.productId = productId;
+        this.historyEnd = offset + len;
+        this.baseTimestamp = readInt(offset, 4, historyEnd);
+        this.duration = readInt(offset + 4, 2, historyEnd);
+        this.historyPos = offset + 6;
+        this.packLen = packLen;
+        this.recordIndex = 0;
+        this.filtering = false;
+        if (dedup != null && historyPos < historyEnd) {
+            applyDedup();
+        }
+    }
+
+    // 方法：0x03 子包中单条记录的长度，len 为子包长度
+    // 与 Go 版 tlvDecodeData 一致：Robb 18 字节（能被 20 整除时为 20 字节），FrogS 9 字节（能被 13 整除时为 13 字节），
+    // 阀门 5 字节，其余 6 字节
+    public static int historyRecordSize(int productId, int len) {
+        switch (productId) {
+            case 0x4D:
+                return 5;
+            case 0x34:
+            case 0x35:
+            case 0x3A:
+            case 0x3B:
+                return (len - 6) % 20 == 0 ? 20 : 18;
+            case 0x3C:
+            case 0x3D:
+            case 0x3E:
+                return (len - 6) % 13 == 0 ? 13 : 9;
+            default:
+                return 6;
+        }
+    }
+
+    // 方法：历史数据子包中单条记录的长度，0x33 固定 8 字节，0x03 同上
+    public static int historyRecordSize(int key, int productId, int len) {
+        return key == 0x33 ? 8 : historyRecordSize(productId, len);
+    }
+
+    private void startV2(byte[] byteArray, int offset, int len) {
+        this.buf = byteArray;
+        this.v2Offset = offset;
+        this.v2Len = len;
+        this.v2Pending = true;
+    }
+
+    private void readHistoryRecord() {
+        int pos = historyPos;
+        int end = historyEnd;
+        v2 = false;
+        present = TIMESTAMP;
+        timestamp = baseTimestamp + duration * recordIndex;
+
+        if (loraModel != null) {
+            readLoraRecord(pos);
+        } else if (packLen >= 18) {
+            readRobbRecord(pos, end);
+        } else if (packLen >= 9) {
+            readFrogsRecord(pos, end);
+        } else if (packLen == 8) {
+            readRecord8(pos, end);
+        } else if (productId == 0x4D) {
+            temperature = (readInt(pos, 2, end) - 500) / 10.0;
+            valveOpen = readInt(pos + 2, 2, end) / 10.0;
+            battery = readByte(pos + 4, end);
+            present |= TEMPERATURE | VALVE_OPEN | BATTERY;
+        } else {
+            int th = readInt(pos, 3, end);
+            temperature = ((th >> 12) - 500) / 10.0;
+            humidity = (th & 0xFFF) / 10.0;
+            pressure = readInt(pos + 3, 2, end) / 100.0;
+            battery = readByte(pos + 5, end);
+            present |= TEMPERATURE | HUMIDITY | BATTERY;
+            if (pressure > 0) {
+                present |= PRESSURE;
+            }
+        }
+        if (rssiPos >= 0) {
+            rssi = buf[rssiPos];
+            present |= RSSI;
+        }
+
+        applyFrameFields();
+        historyPos += packLen;
+        recordIndex++;
+    }
+
+    // Robb 记录：温湿度 3 字节、气压、CO2、PM2.5、PM10、TVOC、噪音各 2 字节，
+    // 之后 18 字节记录为 2 字节光照 + 电量，20 字节记录为 4 字节光照 + 电量
+    private void readRobbRecord(int pos, int end) {
+        int th = readInt(pos, 3, end);
+        temperature = ((th >> 12) - 500) / 10.0;
+        humidity = (th & 0xFFF) / 10.0;
+        pressure = readUInt(pos + 3, 2, end) / 100.0;
+        co2 = readUInt(pos + 5, 2, end);
+        pm25 = readUInt(pos + 7, 2, end);
+        pm10 = readUInt(pos + 9, 2, end);
+        tvoc = readUInt(pos + 11, 2, end);
+        noise = readUInt(pos + 13, 2, end);
+        if (packLen == 18) {
+            light = readUInt(pos + 15, 2, end);
+            battery = readByte(pos + 17, end);
+        } else {
+            light = readUInt(pos + 15, 4, end);
+            battery = readByte(pos + 19, end);
+        }
+        present |= TEMPERATURE | HUMIDITY | PRESSURE | CO2 | PM25 | PM10 | TVOC | NOISE | LIGHT | BATTERY;
+    }
+
+    // 0x33 记录：温湿度 3 字节，之后 2 字节第二个字节高 4 位全为 1 时为外接温度（低 12 位，0xFFF 表示无探头），
+    // 否则为气压；之后为电量和 2 字节外接湿度（0xFFFF 表示无）。与 Go 版 ParseSensorData 的 8 字节记录一致
+    private void readRecord8(int pos, int end) {
+        int th = readInt(pos, 3, end);
+        temperature = ((th >> 12) - 500) / 10.0;
+        humidity = (th & 0xFFF) / 10.0;
+        present |= TEMPERATURE | HUMIDITY | BATTERY;
+
+        int flag = readByte(pos + 4, end);
+        if ((flag & 0xF0) == 0xF0) {
+            int probValue = (flag & 0x0F) << 8 | readByte(pos + 3, end);
+            if (probValue != 0xFFF) {
+                probTemperature = (probValue - 500) / 10.0;
+                present |= PROB_TEMPERATURE;
+            }
+        } else {
+            pressure = readUInt(pos + 3, 2, end) / 100.0;
+            present |= PRESSURE;
+        }
+        battery = readByte(pos + 5, end);
+
+        int raw = readUInt(pos + 6, 2, end);
+        if (raw != 0xFFFF) {
+            probHumidity = raw / 10.0;
+            present |= PROB_HUMIDITY;
+        }
+    }
+
+    // FrogS 记录：温湿度 3 字节、外接探头类型 1 字节、探头读数 4 字节，9 字节记录之后为电量；
+    // 13 字节记录（新固件）多 4 字节外接温湿度，之后为电量
+    private void readFrogsRecord(int pos, int end) {
+        int th = readInt(pos, 3, end);
+        temperature = ((th >> 12) - 500) / 10.0;
+        humidity = (th & 0xFFF) / 10.0;
+        present |= TEMPERATURE | HUMIDITY;
+
+        int probValue = readInt(pos + 4, 4, end);
+        switch (readByte(pos + 3, end)) {
+            case 1:
+                co2Percent = probValue / 10.0;
+                present |= CO2_PERCENT;
+                break;
+            case 2:
+            case 3:
+                probTemperature = probValue / 10.0;
+                present |= PROB_TEMPERATURE;
+                break;
+            case 4:
+            case 6:
+                co2Percent = probValue / 10.0;
+                present |= CO2_PERCENT | PROB_TEMPERATURE | PROB_HUMIDITY;
+                if (packLen == 13) {
+                    probTemperature = readInt(pos + 8, 2, end) / 10.0;
+                    probHumidity = readUInt(pos + 10, 2, end) / 10.0;
+                } else {
+                    // 老固件：内置温湿度即为外接温湿度
+                    probTemperature = temperature;
+                    probHumidity = humidity;
+                    present &= ~(TEMPERATURE | HUMIDITY);
+                }
+                break;
+            case 5:
+                probTemperature = readInt(pos + 4, 2, end) / 10.0;
+                probHumidity = readUInt(pos + 6, 2, end) / 10.0;
+                present |= PROB_TEMPERATURE | PROB_HUMIDITY;
+                break;
+            default:
+                break;
+        }
+
+        battery = readByte(pos + (packLen == 13 ? 12 : 8), end);
+        present |= BATTERY;
+    }
+
+    // LoRa 记录为大端序，前 3 字节高 12 位为温度、低 12 位为湿度；resetLora 保证记录完整
+    private void readLoraRecord(int pos) {
+        int th = TLVDecoder.readUIntBigEndian(buf, pos, 3);
+        temperature = ((th >> 12) - 500) / 10.0;
+        humidity = (th & 0xFFF) / 10.0;
+        if (loraModel == LoraDecoder.Model.ROBB) {
+            co2 = TLVDecoder.readUIntBigEndian(buf, pos + 5, 2);
+            pm25 = TLVDecoder.readUIntBigEndian(buf, pos + 7, 2);
+            pm10 = TLVDecoder.readUIntBigEndian(buf, pos + 9, 2);
+            tvoc = TLVDecoder.readUIntBigEndian(buf, pos + 11, 2);
+            noise = TLVDecoder.readUIntBigEndian(buf, pos + 13, 2);
+            light = TLVDecoder.readUIntBigEndian(buf, pos + 15, 4);
+            battery = buf[pos + 19] & 0xFF; // 255 为直接供电，0-100 为电池
+        } else {
+            co2 = TLVDecoder.readUIntBigEndian(buf, pos + 3, 2);
+            battery = buf[pos + 5] & 0xFF;
+        }
+        present |= loraModel.present;
+    }
+
+    // 按类型字节查 V2Layout，用同一个循环解析所有字段
+    private void readV2Record() {
+        int pos = v2Offset;
+        int end = v2Offset + v2Len;
+        v2 = true;
+        timestamp = readInt(pos, 4, end);
+
+        V2Layout layout = V2Layout.of(readByte(pos + 4, end));
+        present = TIMESTAMP | layout.present;
+        for (int i = 0; i < layout.size; i++) {
+            int fieldPos = pos + layout.offsets[i];
+            int raw = layout.signed[i]
+                    ? readInt(fieldPos, layout.widths[i], end)
+                    : readUInt(fieldPos, layout.widths[i], end);
+            setField(layout.fields[i], raw, layout.scales[i]);
+        }
+
+        applyFrameFields();
+    }
+
+    private void setField(int field, int raw, double scale) {
+        switch (field) {
+            case TEMPERATURE:
+                temperature = raw / scale;
+                break;
+            case HUMIDITY:
+                humidity = raw / scale;
+                break;
+            case PROB_TEMPERATURE:
+                probTemperature = raw / scale;
+                break;
+            case PROB_HUMIDITY:
+                probHumidity = raw / scale;
+                break;
+            case CO2_PERCENT:
+                co2Percent = raw / scale;
+                break;
+            case PRESSURE:
+                pressure = raw / scale;
+                break;
+            case VALVE_OPEN:
+                valveOpen = raw / scale;
+                break;
+            case CO2:
+                co2 = (int) (raw / scale);
+                break;
+            case PM25:
+                pm25 = (int) (raw / scale);
+                break;
+            case PM10:
+                pm10 = (int) (raw / scale);
+                break;
+            case TVOC:
+                tvoc = (int) (raw / scale);
+                break;
+            case NOISE:
+                noise = (int) (raw / scale);
+                break;
+            case LIGHT:
+                light = (int) (raw / scale);
+                break;
+            case BATTERY:
+                battery = (int) (raw / scale);
+                break;
+            case RSSI:
+                rssi = (int) (raw / scale);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void applyFrameFields() {
+        if (!frameFields) {
+            return;
+        }
+        if (frameBattery >= 0) {
+            battery = frameBattery;
+            present |= BATTERY;
+        }
+        if (frameRssi < 0) {
+            rssi = frameRssi;
+            present |= RSSI;
+        }
+    }
+
+    // 超出记录末尾的字节按 0 处理，与 Arrays.copyOfRange 补零的行为一致
+    private int readInt(int pos, int byteLen, int end) {
+        if (pos + byteLen <= end) {
+            return TLVDecoder.readIntLittleEndian(buf, pos, byteLen);
+        }
+
+        int val = 0;
+        for (int i = 0; i < byteLen && pos + i < end; i++) {
+            val |= (buf[pos + i] & 0xFF) << (i * 8);
+        }
+        return TLVDecoder.unsignedToSigned(val, byteLen);
+    }
+
+    private int readUInt(int pos, int byteLen, int end) {
+        int val = 0;
+        for (int i = 0; i < byteLen && pos + i < end; i++) {
+            val |= (buf[pos + i] & 0xFF) << (i * 8);
+        }
+        return val;
+    }
+
+    private int readByte(int pos, int end) {
+        return pos < end ? buf[pos] & 0xFF : 0;
+    }
+}
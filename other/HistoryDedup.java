@@ -0,0 +1,280 @@
+package other;
+
+// FIXME rename package
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// 类：HistoryDedup，重复和重叠历史数据过滤
+// 设备重连后会重传与之前重叠的历史数据窗口（0x03 / 0x33），这里按设备记录：
+//   watermark：已接收的最新一条记录的时间戳
+//   bitmap：watermark 往前 64 个间隔的记录是否已接收，第 i 位对应 watermark - i * duration
+// 只根据子包头的时间戳、间隔和记录条数判断哪些记录是新的，整段已接收过的窗口不需要解析记录。
+// 早于 watermark 超过 64 个间隔的记录、间隔变化后不晚于 watermark 的记录都视为已接收。
+// 状态保存在按设备号分段加锁的开放寻址表中，键为 long（12 位十六进制 MAC 直接转成整数，其他设备号取 64 位哈希），
+// 每个设备约 24 字节，线程安全。
+public class HistoryDedup {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int WINDOW = 64;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    private final LongAdder acceptedCount = new LongAdder();
+    private final LongAdder duplicateCount = new LongAdder();
+
+    public HistoryDedup() {
+        this(64);
+    }
+
+    // stripes 向上取 2 的幂，约为同时写入的线程数的几倍
+    public HistoryDedup(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        int n = Integer.highestOneBit(stripes * 2 - 1);
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeMask = n - 1;
+    }
+
+    // 方法：设备号转成表中的键
+    public static long key(String deviceId) {
+        if (deviceId.length() == 12) {
+            long mac = 0;
+            int i = 0;
+            for (; i < 12; i++) {
+                int digit = Character.digit(deviceId.charAt(i), 16);
+                if (digit < 0) {
+                    break;
+                }
+                mac = (mac << 4) | digit;
+            }
+            if (i == 12) {
+                return mac;
+            }
+        }
+        // 非 MAC 设备号：FNV-1a 64 位，最高位置 1 与 MAC 区分
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < deviceId.length(); i++) {
+            h ^= deviceId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h |= Long.MIN_VALUE;
+        return h == EMPTY ? EMPTY + 1 : h;
+    }
+
+    public int filter(String deviceId, int timestamp, int duration, int count, long[] out) {
+        return filter(key(deviceId), timestamp, duration, count, out);
+    }
+
+    // 方法：检查第 k 条记录时间戳为 timestamp + k * duration 的 count 条记录，把新记录标记为已接收
+    // out 不为 null 时第 k 位表示第 k 条记录是否为新记录，长度至少 (count + 63) / 64；返回新记录条数
+    public int filter(long key, int timestamp, int duration, int count, long[] out) {
+        if (out != null) {
+            Arrays.fill(out, 0, (count + 63) >>> 6, 0L);
+        }
+        if (count <= 0) {
+            return 0;
+        }
+        Stripe stripe = stripes[(int) (mix(key) >>> 40) & stripeMask];
+        int accepted;
+        synchronized (stripe) {
+            accepted = stripe.filter(key, timestamp, duration, count, out);
+        }
+        acceptedCount.add(accepted);
+        duplicateCount.add(count - accepted);
+        return accepted;
+    }
+
+    // 方法：设备的 watermark，没有记录时返回 Long.MIN_VALUE
+    public long watermark(String deviceId) {
+        long key = key(deviceId);
+        Stripe stripe = stripes[(int) (mix(key) >>> 40) & stripeMask];
+        synchronized (stripe) {
+            int slot = stripe.find(key);
+            return slot < 0 ? Long.MIN_VALUE : stripe.watermarks[slot];
+        }
+    }
+
+    public long acceptedCount() {
+        return acceptedCount.sum();
+    }
+
+    public long duplicateCount() {
+        return duplicateCount.sum();
+    }
+
+    private static long mix(long key) {
+        return key * 0x9E3779B97F4A7C15L;
+    }
+
+    // 一个分段：线性探测的开放寻址表，负载超过 1/2 时扩容
+    private static final class Stripe {
+        long[] keys = new long[16];
+        int[] watermarks = new int[16];
+        int[] durations = new int[16];
+        long[] bitmaps = new long[16];
+        int size;
+
+        Stripe() {
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int i = (int) mix(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                if (keys[i] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        int filter(long key, int timestamp, int duration, int count, long[] out) {
+            long last = timestamp + (long) duration * (count - 1);
+            int slot = find(key);
+            if (slot < 0) {
+                slot = insert(key);
+                watermarks[slot] = (int) last;
+                durations[slot] = duration;
+                bitmaps[slot] = duration > 0 ? mask(count) : 1L;
+                setRange(out, 0, count);
+                return count;
+            }
+
+            long watermark = watermarks[slot];
+            if (duration <= 0 || duration != durations[slot] || Math.floorMod(watermark - timestamp, (long) duration) != 0) {
+                // 间隔变化或与原来的时间格不对齐：不晚于 watermark 的都算已接收，之后重新开始记录
+                int first = duration <= 0 ? (timestamp > watermark ? 0 : count) : firstAfter(timestamp, duration, count, watermark);
+                if (first < count) {
+                    watermarks[slot] = (int) last;
+                    durations[slot] = duration;
+                    bitmaps[slot] = duration > 0 ? mask(count - first) : 1L;
+                    setRange(out, first, count);
+                }
+                return count - first;
+            }
+
+            // 晚于 watermark 的记录总在末尾且连续
+            int first = firstAfter(timestamp, duration, count, watermark);
+            long bitmap = bitmaps[slot];
+            int accepted = 0;
+            // 窗口内的记录按位图判断，第 k 条对应第 (watermark - t) / duration 位
+            long oldest = watermark - (long) (WINDOW - 1) * duration;
+            int k = oldest <= timestamp ? 0 : (int) Math.min(count, (oldest - timestamp + duration - 1) / duration);
+            for (; k < first; k++) {
+                int bit = (int) ((watermark - timestamp - (long) duration * k) / duration);
+                if ((bitmap & (1L << bit)) == 0) {
+                    bitmap |= 1L << bit;
+                    if (out != null) {
+                        out[k >>> 6] |= 1L << k;
+                    }
+                    accepted++;
+                }
+            }
+
+            if (first < count) {
+                long shift = (last - watermark) / duration;
+                bitmap = shift >= WINDOW ? 0 : bitmap << shift;
+                bitmap |= mask(count - first);
+                watermarks[slot] = (int) last;
+                setRange(out, first, count);
+                accepted += count - first;
+            }
+            bitmaps[slot] = bitmap;
+            return accepted;
+        }
+
+        private int insert(long key) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = (int) mix(key) & mask;
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            size++;
+            return i;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldWatermarks = watermarks;
+            int[] oldDurations = durations;
+            long[] oldBitmaps = bitmaps;
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            watermarks = new int[capacity];
+            durations = new int[capacity];
+            bitmaps = new long[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int i = (int) mix(oldKeys[j]) & mask;
+                    while (keys[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    watermarks[i] = oldWatermarks[j];
+                    durations[i] = oldDurations[j];
+                    bitmaps[i] = oldBitmaps[j];
+                }
+            }
+        }
+    }
+
+    // 第一条时间戳晚于 watermark 的记录序号，没有时返回 count
+    private static int firstAfter(int timestamp, int duration, int count, long watermark) {
+        if (timestamp > watermark) {
+            return 0;
+        }
+        long k = (watermark - timestamp) / duration + 1;
+        return (int) Math.min(k, count);
+    }
+
+    // 最近 n 条记录对应的低位
+    private static long mask(int n) {
+        return n >= WINDOW ? -1L : (1L << n) - 1;
+    }
+
+    private static void setRange(long[] out, int from, int to) {
+        if (out == null) {
+            return;
+        }
+        for (int k = from; k < to; k++) {
+            out[k >>> 6] |= 1L << k;
+        }
+    }
+
+    // 主方法：1000 台设备，每次重连重传最近 3 小时的分钟数据（与上次重叠 2 小时）
+    public static void main(String[] args) {
+        HistoryDedup dedup = new HistoryDedup();
+        int devices = 1000;
+        int records = 180;
+        long[] out = new long[(records + 63) >>> 6];
+        int base = 1783653360;
+        String[] ids = new String[devices];
+        for (int d = 0; d < devices; d++) {
+            ids[d] = String.format("582D34%06X", d);
+        }
+        long start = System.nanoTime();
+        long accepted = 0;
+        for (int upload = 0; upload < 100; upload++) {
+            int timestamp = base + upload * 3600;
+            for (int d = 0; d < devices; d++) {
+                accepted += dedup.filter(ids[d], timestamp, 60, records, out);
+            }
+        }
+        long cost = System.nanoTime() - start;
+        System.out.printf("windows=%d accepted=%d duplicates=%d %.0f windows/s%n",
+                100 * devices, accepted, dedup.duplicateCount(), 100 * devices * 1e9 / cost);
+    }
+}
@@ -0,0 +1,27 @@
+package other;
+
+// FIXME rename package
+
+// 类：HistoryFixture，示例程序用的 0x03 历史数据子包内容（不含 key 和长度）
+// 头部为时间戳(4) 间隔(2)，之后每条 6 字节：温湿度 3 字节、气压 2 字节、电量 1 字节
+final class HistoryFixture {
+
+    private HistoryFixture() {
+    }
+
+    // 方法：写入头部，返回第一条记录的位置
+    static int writeHeader(byte[] out, int offset, int timestamp, int interval) {
+        TLVEncoder.writeLittleEndian(out, offset, timestamp, 4);
+        TLVEncoder.writeLittleEndian(out, offset + 4, interval, 2);
+        return offset + 6;
+    }
+
+    // 方法：写入一条记录，返回下一条记录的位置
+    // 均为设备原始值：temperature 为 (温度 + 50) * 10，humidity 为湿度 * 10，pressure 为气压 * 100
+    static int writeRecord(byte[] out, int offset, int temperature, int humidity, int pressure, int battery) {
+        TLVEncoder.writeLittleEndian(out, offset, (temperature << 12) | humidity, 3);
+        TLVEncoder.writeLittleEndian(out, offset + 3, pressure, 2);
+        out[offset + 5] = (byte) battery;
+        return offset + 6;
+    }
+}
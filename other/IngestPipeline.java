@@ -0,0 +1,345 @@
+package other;
+
+// FIXME rename package
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// 类：IngestPipeline，上行数据接入流水线
+// receive → 按设备分区的有界队列 → 解码（转义还原、解密、解包都在 TLVDecoder.tryDecode 内完成，不改写 payload）→ 按批交给 sink。
+// 各级之间用 java.util.concurrent.Flow 的 SubmissionPublisher 连接，队列都有上限：
+// sink 处理不过来时解码线程阻塞在提交批次上，分区队列随之积满，receive 阻塞（submit）或丢弃（offer），
+// 压力一直传到 MQTT 客户端的回调线程。同一设备的数据固定进入同一分区，保持先后顺序。
+// 解码线程和 sink 线程各用一个固定大小的线程池，sink 单独一个线程，避免解码线程占满线程池时 sink 无法运行。
+public class IngestPipeline implements AutoCloseable {
+
+    // 类：Decoded，单帧解析结果，帧头不完整时 result 为 null
+    public static class Decoded {
+        public final String deviceId;
+        public final DecodeStatus status;
+        public final TLVDecoder.TlvUnpackResult result;
+        // receive 时的 System.nanoTime()
+        public final long receivedNanos;
+
+        Decoded(String deviceId, DecodeStatus status, TLVDecoder.TlvUnpackResult result, long receivedNanos) {
+            this.deviceId = deviceId;
+            this.status = status;
+            this.result = result;
+            this.receivedNanos = receivedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "deviceId='" + deviceId + '\'' +
+                    ", status=" + status +
+                    ", result=" + result +
+                    '}';
+        }
+    }
+
+    // 分区队列中的一条原始数据
+    private static final class Message {
+        final String deviceId;
+        final byte[] payload;
+        final int offset;
+        final int len;
+        final long receivedNanos;
+
+        Message(String deviceId, byte[] payload, int offset, int len, long receivedNanos) {
+            this.deviceId = deviceId;
+            this.payload = payload;
+            this.offset = offset;
+            this.len = len;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+
+    // 定时投递到每个分区，让未满的批次按时交给 sink
+    private static final Message FLUSH = new Message(null, null, 0, 0, 0);
+
+    private final List<SubmissionPublisher<Message>> partitions;
+    private final SubmissionPublisher<List<Decoded>> batches;
+    private final ExecutorService decodeExecutor;
+    private final ExecutorService sinkExecutor;
+    private final ScheduledExecutorService flushTimer;
+    private final CountDownLatch decodersDone;
+    private final int batchSize;
+    private volatile boolean closed;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder decoded = new LongAdder();
+    private final LongAdder[] errorsByStatus = new LongAdder[DecodeStatus.values().length];
+
+    public IngestPipeline(Consumer<List<Decoded>> sink) {
+        this(Runtime.getRuntime().availableProcessors(), 1024, 256, 100, sink);
+    }
+
+    public IngestPipeline(int partitionCount, int queueCapacity, int batchSize, long lingerMillis, Consumer<List<Decoded>> sink) {
+        this(partitionCount, queueCapacity, batchSize, lingerMillis);
+        batches.consume(sink);
+    }
+
+    // partitionCount：解码分区数（即解码线程数）；queueCapacity：每个分区和批次队列的容量；
+    // batchSize：每批最多条数；lingerMillis：未满的批次最多等待的时间
+    public IngestPipeline(int partitionCount, int queueCapacity, int batchSize, long lingerMillis,
+                          Flow.Subscriber<? super List<Decoded>> sink) {
+        this(partitionCount, queueCapacity, batchSize, lingerMillis);
+        batches.subscribe(sink);
+    }
+
+    private IngestPipeline(int partitionCount, int queueCapacity, int batchSize, long lingerMillis) {
+        if (partitionCount < 1 || queueCapacity < 1 || batchSize < 1 || lingerMillis < 1) {
+            throw new IllegalArgumentException("partitionCount, queueCapacity, batchSize and lingerMillis must be positive");
+        }
+        for (int i = 0; i < errorsByStatus.length; i++) {
+            errorsByStatus[i] = new LongAdder();
+        }
+        this.batchSize = batchSize;
+
+        decodeExecutor = Executors.newFixedThreadPool(partitionCount, threadFactory("ingest-decode-"));
+        sinkExecutor = Executors.newSingleThreadExecutor(threadFactory("ingest-sink-"));
+        batches = new SubmissionPublisher<>(sinkExecutor, queueCapacity);
+
+        decodersDone = new CountDownLatch(partitionCount);
+        partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            SubmissionPublisher<Message> partition = new SubmissionPublisher<>(decodeExecutor, queueCapacity);
+            partition.subscribe(new DecodeStage());
+            partitions.add(partition);
+        }
+
+        flushTimer = Executors.newSingleThreadScheduledExecutor(threadFactory("ingest-flush-"));
+        flushTimer.scheduleWithFixedDelay(this::flush, lingerMillis, lingerMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + n.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // 方法：接收一帧数据，分区队列已满时阻塞等待
+    // 解码线程处理完之前 payload 仍被引用，调用方不能再修改；解码本身不改写 payload
+    public void submit(String deviceId, byte[] payload) {
+        submit(deviceId, payload, 0, payload.length);
+    }
+
+    public void submit(String deviceId, byte[] payload, int offset, int len) {
+        partitionFor(deviceId).submit(new Message(deviceId, payload, offset, len, System.nanoTime()));
+        received.increment();
+    }
+
+    // 方法：接收一帧数据，分区队列已满时最多等待 timeout，仍未放入则丢弃并返回 false
+    public boolean offer(String deviceId, byte[] payload, long timeout, TimeUnit unit) {
+        return offer(deviceId, payload, 0, payload.length, timeout, unit);
+    }
+
+    public boolean offer(String deviceId, byte[] payload, int offset, int len, long timeout, TimeUnit unit) {
+        Message message = new Message(deviceId, payload, offset, len, System.nanoTime());
+        if (partitionFor(deviceId).offer(message, timeout, unit, null) < 0) {
+            dropped.increment();
+            return false;
+        }
+        received.increment();
+        return true;
+    }
+
+    private SubmissionPublisher<Message> partitionFor(String deviceId) {
+        if (closed) {
+            throw new IllegalStateException("pipeline closed");
+        }
+        int h = deviceId == null ? 0 : deviceId.hashCode();
+        return partitions.get(((h ^ (h >>> 16)) & 0x7FFFFFFF) % partitions.size());
+    }
+
+    private void flush() {
+        try {
+            for (SubmissionPublisher<Message> partition : partitions) {
+                // 队列满时说明批次很快会凑满，不需要再投递
+                partition.offer(FLUSH, null);
+            }
+        } catch (IllegalStateException e) {
+            // close 时分区已关闭
+        }
+    }
+
+    // 方法：停止接收，等已接收的数据全部解码并交给 sink 后返回
+    // 等待期间被中断时仍等到处理完，返回前恢复线程的中断状态
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flushTimer.shutdownNow();
+        for (SubmissionPublisher<Message> partition : partitions) {
+            partition.close();
+        }
+        boolean interrupted = false;
+        while (decodersDone.getCount() > 0) {
+            try {
+                decodersDone.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        batches.close();
+        decodeExecutor.shutdown();
+        sinkExecutor.shutdown();
+        while (!sinkExecutor.isTerminated()) {
+            try {
+                sinkExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 放入分区队列的帧数；关闭后被拒绝的、offer 超时丢弃的不计入
+    public long receivedCount() {
+        return received.sum();
+    }
+
+    // offer 超时丢弃的帧数
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public long decodedCount() {
+        return decoded.sum();
+    }
+
+    public long errorCount(DecodeStatus status) {
+        return errorsByStatus[status.ordinal()].sum();
+    }
+
+    // 各分区队列中等待解码的最大条数
+    public int maxQueueLag() {
+        int lag = 0;
+        for (SubmissionPublisher<Message> partition : partitions) {
+            lag = Math.max(lag, partition.estimateMaximumLag());
+        }
+        return lag;
+    }
+
+    // 解码阶段：每个分区一个，onNext 由 SubmissionPublisher 在解码线程池上顺序调用
+    private final class DecodeStage implements Flow.Subscriber<Message> {
+        private final DecodeResult result = new DecodeResult();
+        private Flow.Subscription subscription;
+        private List<Decoded> batch;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(batchSize);
+        }
+
+        @Override
+        public void onNext(Message message) {
+            if (message != FLUSH) {
+                add(decode(message));
+                if (batch.size() >= batchSize) {
+                    emit();
+                }
+            } else if (batch != null) {
+                emit();
+            }
+            subscription.request(1);
+        }
+
+        private Decoded decode(Message message) {
+            TLVDecoder.tryDecode(message.payload, message.offset, message.len, message.deviceId, result);
+            if (result.ok()) {
+                decoded.increment();
+            } else {
+                errorsByStatus[result.status.ordinal()].increment();
+            }
+            return new Decoded(message.deviceId, result.status, result.toUnpackResult(), message.receivedNanos);
+        }
+
+        private void add(Decoded item) {
+            if (batch == null) {
+                batch = new ArrayList<>(batchSize);
+            }
+            batch.add(item);
+        }
+
+        // batches 队列满时阻塞，背压传回本分区
+        private void emit() {
+            batches.submit(batch);
+            batch = null;
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            onComplete();
+        }
+
+        @Override
+        public void onComplete() {
+            if (batch != null) {
+                emit();
+            }
+            decodersDone.countDown();
+        }
+    }
+
+    // 主方法：用进程内的模拟 broker 推送数据，sink 故意放慢，观察背压和批次
+    public static void main(String[] args) throws InterruptedException {
+        String src = "4347417200851f00f463506a13f800560321020500070001f008004100320034000000000000003802003a006108003435353031313735110500312e322e3981020008098902004b018a04004c150000650100b36401006474020021107004001e0000002c0100008b010002710400db0e00001d0100015912";
+        byte[] frame = TLVDecoder.hexStringToByteArray(src);
+
+        LongAdder sinkRecords = new LongAdder();
+        LongAdder sinkBatches = new LongAdder();
+        IngestPipeline pipeline = new IngestPipeline(4, 256, 128, 50, batch -> {
+            sinkBatches.increment();
+            sinkRecords.add(batch.size());
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        });
+
+        // 模拟 broker：8 个连接线程，每个代表一批设备
+        int devices = 1000;
+        int frames = 200_000;
+        Thread[] brokers = new Thread[8];
+        long start = System.nanoTime();
+        for (int t = 0; t < brokers.length; t++) {
+            int id = t;
+            brokers[t] = new Thread(() -> {
+                for (int i = id; i < frames; i += brokers.length) {
+                    byte[] payload = i % 1000 == 0 ? new byte[]{0x43, 0x47} : frame;
+                    pipeline.submit("mac" + (i % devices), payload);
+                }
+            });
+            brokers[t].start();
+        }
+        for (Thread broker : brokers) {
+            broker.join();
+        }
+        pipeline.close();
+        long cost = System.nanoTime() - start;
+
+        System.out.printf("received=%d decoded=%d shortHeader=%d sinkRecords=%d sinkBatches=%d %.0f frames/s%n",
+                pipeline.receivedCount(), pipeline.decodedCount(), pipeline.errorCount(DecodeStatus.SHORT_HEADER),
+                sinkRecords.sum(), sinkBatches.sum(), frames * 1e9 / cost);
+    }
+}
@@ -0,0 +1,202 @@
+package other;
+
+// FIXME rename package
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// 类：LoraDecoder，LoRa 上行数据解析（Robb 0x41、Pheasant CO2）
+// 数据格式：第 1 字节忽略，第 2 字节为命令，第 3 字节为 payload 长度，之后是 payload，整帧以 CRC-16/Modbus 结尾。
+// 0x41 的 payload[0] 为 1 表示实时数据、0 表示历史数据；记录为大端序定长记录，由 HistoryCursor 逐条读取，
+// 历史数据可直接追加到 HistoryColumns，不为每条记录创建对象。
+public class LoraDecoder {
+
+    public static final int CMD_DATA = 0x41;
+    public static final int CMD_SETTING = 0x47;
+
+    // 枚举：Model，机型及单条记录长度
+    public enum Model {
+        ROBB(20, HistoryCursor.TEMPERATURE | HistoryCursor.HUMIDITY | HistoryCursor.CO2 | HistoryCursor.PM25
+                | HistoryCursor.PM10 | HistoryCursor.TVOC | HistoryCursor.NOISE | HistoryCursor.LIGHT | HistoryCursor.BATTERY),
+        PHEASANT_CO2(6, HistoryCursor.TEMPERATURE | HistoryCursor.HUMIDITY | HistoryCursor.CO2 | HistoryCursor.BATTERY);
+
+        public final int recordSize;
+        // 记录包含的字段
+        final int present;
+
+        Model(int recordSize, int present) {
+            this.recordSize = recordSize;
+            this.present = present;
+        }
+    }
+
+    // 类：LoraMessage，单帧解析结果，未出现的字段为 null
+    public static class LoraMessage {
+        public int cmd;
+        public TLVDecoder.SensorData realtime;
+        // 历史数据写入 HistoryColumns 时为 null，只记录条数
+        public List<TLVDecoder.SensorData> history;
+        public int historySize;
+        public Integer usbPlugin;
+        public String pmSn;
+        public String firmware;
+        // 0x47 设置，reportInterval 单位为秒
+        public Integer reportInterval;
+        public Integer collectInterval;
+        public Integer bleInterval;
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "cmd=" + TLVDecoder.HEX_KEYS[cmd] +
+                    ", realtime=" + realtime +
+                    ", historySize=" + historySize +
+                    ", history=" + history +
+                    ", usbPlugin=" + usbPlugin +
+                    ", pmSn='" + pmSn + '\'' +
+                    ", firmware='" + firmware + '\'' +
+                    ", reportInterval=" + reportInterval +
+                    ", collectInterval=" + collectInterval +
+                    ", bleInterval=" + bleInterval +
+                    '}';
+        }
+    }
+
+    // CRC-16/Modbus（多项式 0xA001 反射）查表
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0xA001 : crc >>> 1;
+            }
+            CRC_TABLE[i] = crc;
+        }
+    }
+
+    // Robb 实时数据中 usb、PM 传感器编号、固件版本所需的 payload 长度
+    private static final int ROBB_REALTIME_EXTRA_LEN = 36;
+
+    private static final ThreadLocal<HistoryCursor> CURSOR = ThreadLocal.withInitial(HistoryCursor::new);
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[512]);
+
+    // 方法：计算 byteArray[offset, offset+len) 的 CRC-16/Modbus，包含末尾 crc 的整帧结果为 0 表示校验通过
+    public static int crc16(byte[] byteArray, int offset, int len) {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + len; i++) {
+            crc = (crc >>> 8) ^ CRC_TABLE[(crc ^ byteArray[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    // 方法：解析 LoRa 数据帧，历史数据以 SensorData 列表返回
+    public static LoraMessage decode(Model model, byte[] byteArray) {
+        return decode(model, byteArray, 0, byteArray.length);
+    }
+
+    public static LoraMessage decode(Model model, byte[] byteArray, int offset, int len) {
+        return decode(model, byteArray, offset, len, null);
+    }
+
+    // 方法：解析 ByteBuffer 中 [position, limit) 的数据帧，不改变 position
+    // 历史数据写入 history（为 null 时以列表返回）
+    public static LoraMessage decode(Model model, ByteBuffer buffer, HistoryColumns history) {
+        if (buffer.hasArray()) {
+            return decode(model, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), history);
+        }
+
+        // 堆外内存拷贝到当前线程的缓冲区，解析结果不引用该缓冲区
+        int len = buffer.remaining();
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < len) {
+            scratch = new byte[len];
+            SCRATCH.set(scratch);
+        }
+        buffer.duplicate().get(scratch, 0, len);
+        return decode(model, scratch, 0, len, history);
+    }
+
+    // 方法：解析 byteArray[offset, offset+len)，历史数据追加到 history，不清空已有数据；history 为 null 时以列表返回
+    public static LoraMessage decode(Model model, byte[] byteArray, int offset, int len, HistoryColumns history) {
+        if (len < 5) {
+            throw new DecodeException(DecodeStatus.SHORT_HEADER, "LoRa 数据长度不足");
+        }
+        if (crc16(byteArray, offset, len) != 0) {
+            throw new DecodeException(DecodeStatus.BAD_CRC, "LoRa 数据 crc 校验失败");
+        }
+
+        int cmd = byteArray[offset + 1] & 0xFF;
+        int length = byteArray[offset + 2] & 0xFF;
+        if (3 + length + 2 > len) {
+            throw new DecodeException(DecodeStatus.BAD_LENGTH, "LoRa 数据长度不足以提取 payload");
+        }
+
+        LoraMessage message = new LoraMessage();
+        message.cmd = cmd;
+        int payload = offset + 3;
+        switch (cmd) {
+            case CMD_DATA:
+                if (length < 7) {
+                    throw new DecodeException(DecodeStatus.BAD_PAYLOAD, "LoRa 数据 payload 长度不足");
+                }
+                int timestamp = TLVDecoder.readUIntBigEndian(byteArray, payload + 1, 4);
+                if (byteArray[payload] == 1) {
+                    decodeRealtime(model, byteArray, payload, length, timestamp, message);
+                } else if (byteArray[payload] == 0) {
+                    int interval = TLVDecoder.readUIntBigEndian(byteArray, payload + 5, 2);
+                    HistoryCursor cursor = CURSOR.get().resetLora(model, byteArray, payload + 7, length - 7, timestamp, interval);
+                    decodeHistory(cursor, history, message);
+                }
+                break;
+
+            case CMD_SETTING:
+                if (model == Model.PHEASANT_CO2) {
+                    if (length < 6) {
+                        throw new DecodeException(DecodeStatus.BAD_PAYLOAD, "LoRa 设置 payload 长度不足");
+                    }
+                    message.reportInterval = TLVDecoder.readUIntBigEndian(byteArray, payload, 2) * 60;
+                    message.collectInterval = TLVDecoder.readUIntBigEndian(byteArray, payload + 2, 2);
+                    message.bleInterval = TLVDecoder.readUIntBigEndian(byteArray, payload + 4, 2);
+                }
+                break;
+
+            default:
+                break;
+        }
+        return message;
+    }
+
+    private static void decodeRealtime(Model model, byte[] byteArray, int payload, int length, int timestamp, LoraMessage message) {
+        if (length < 5 + model.recordSize) {
+            throw new DecodeException(DecodeStatus.BAD_PAYLOAD, "LoRa 实时数据长度不足");
+        }
+        HistoryCursor cursor = CURSOR.get().resetLora(model, byteArray, payload + 5, model.recordSize, timestamp, 0);
+        cursor.next();
+        message.realtime = cursor.toSensorData();
+        message.realtime.dataType = "event";
+
+        if (model == Model.ROBB && length >= ROBB_REALTIME_EXTRA_LEN) {
+            message.usbPlugin = byteArray[payload + 25] & 0xFF;
+            message.pmSn = TLVDecoder.bytesToHex(byteArray, payload + 26, 4).toUpperCase();
+            message.firmware = new String(byteArray, payload + 31, 5, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void decodeHistory(HistoryCursor cursor, HistoryColumns history, LoraMessage message) {
+        if (history != null) {
+            int before = history.size;
+            history.addAll(cursor);
+            message.historySize = history.size - before;
+            return;
+        }
+
+        message.history = new ArrayList<>();
+        while (cursor.next()) {
+            message.history.add(cursor.toSensorData());
+        }
+        message.historySize = message.history.size();
+    }
+}
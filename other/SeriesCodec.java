@@ -0,0 +1,309 @@
+package other;
+
+// FIXME rename package
+
+import java.util.Arrays;
+
+// 类：SeriesCodec，解码后历史数据的紧凑存储格式
+// 历史记录按 duration 等间隔、数值按设备原始精度（温湿度 0.1、气压 0.01）量化，逐条按行编码：
+//   时间戳：与上一条间隔之差（delta-of-delta），等间隔时为 0
+//   数值：先乘以原始精度的倍数还原成设备上报的整数，再与该字段上一个值求差
+// 差值都用 zig-zag 变长整数写出，等间隔、缓慢变化的数据每个值通常 1 字节。
+// 行格式：varint(zigzag(dod) << 1 | 字段变化标志) [varint(字段标志)] 各字段 varint(zigzag(delta))，字段按标志位从低到高排列。
+// 流开头为 1 字节版本号。行与行之间只依赖前一行的状态，可以边收边解，不需要先读完整个流。
+// 不是设备原始精度的数值会被量化到该精度。
+public class SeriesCodec {
+
+    public static final int VERSION = 1;
+
+    // 各字段标志位对应的倍数，值 × 倍数为设备上报的整数；下标为 Integer.numberOfTrailingZeros(field)
+    private static final double[] SCALES = new double[16];
+    private static final int VALUE_FIELDS = 0xFFFF & ~HistoryCursor.TIMESTAMP;
+
+    static {
+        Arrays.fill(SCALES, 1);
+        SCALES[index(HistoryCursor.TEMPERATURE)] = 10;
+        SCALES[index(HistoryCursor.HUMIDITY)] = 10;
+        SCALES[index(HistoryCursor.PROB_TEMPERATURE)] = 10;
+        SCALES[index(HistoryCursor.PROB_HUMIDITY)] = 10;
+        SCALES[index(HistoryCursor.CO2_PERCENT)] = 10;
+        SCALES[index(HistoryCursor.VALVE_OPEN)] = 10;
+        SCALES[index(HistoryCursor.PRESSURE)] = 100;
+    }
+
+    private static int index(int field) {
+        return Integer.numberOfTrailingZeros(field);
+    }
+
+    // 方法：把 columns 的全部行编码成一个字节数组
+    public static byte[] encode(HistoryColumns columns) {
+        Encoder encoder = new Encoder(columns.size * 6 + 16);
+        encoder.addAll(columns);
+        return encoder.toByteArray();
+    }
+
+    // 方法：解码 byteArray[offset, offset+len) 并追加到 columns，返回追加的行数
+    public static int decode(byte[] byteArray, int offset, int len, HistoryColumns columns) {
+        Decoder decoder = new Decoder().reset(byteArray, offset, len);
+        int rows = 0;
+        while (decoder.next()) {
+            decoder.addTo(columns);
+            rows++;
+        }
+        return rows;
+    }
+
+    // 类：Encoder，逐行追加编码，输出写入内部的可扩容缓冲区；非线程安全
+    public static class Encoder {
+        private byte[] out;
+        private int pos;
+        private int rows;
+
+        private int lastTimestamp;
+        private long lastInterval;
+        private int lastPresent;
+        private final long[] lastRaw = new long[16];
+
+        public Encoder() {
+            this(256);
+        }
+
+        public Encoder(int initialCapacity) {
+            out = new byte[Math.max(initialCapacity, 16)];
+            reset();
+        }
+
+        // 方法：清空已编码的数据，重新开始一个流
+        public Encoder reset() {
+            pos = 0;
+            rows = 0;
+            lastTimestamp = 0;
+            lastInterval = 0;
+            lastPresent = 0;
+            Arrays.fill(lastRaw, 0);
+            out[pos++] = VERSION;
+            return this;
+        }
+
+        // 方法：编码游标剩余的全部记录，没有时间戳的记录跳过
+        public Encoder addAll(HistoryCursor cursor) {
+            while (cursor.next()) {
+                add(cursor);
+            }
+            return this;
+        }
+
+        public void add(HistoryCursor cursor) {
+            if (!cursor.has(HistoryCursor.TIMESTAMP)) {
+                return;
+            }
+            int present = cursor.present() & VALUE_FIELDS;
+            writeHeader(cursor.timestamp(), present);
+            for (int p = present; p != 0; p &= p - 1) {
+                writeValue(index(p), cursor.value(p & -p));
+            }
+        }
+
+        public Encoder addAll(HistoryColumns columns) {
+            for (int row = 0; row < columns.size; row++) {
+                add(columns, row);
+            }
+            return this;
+        }
+
+        public void add(HistoryColumns columns, int row) {
+            int present = 0;
+            for (int p = columns.columns & VALUE_FIELDS; p != 0; p &= p - 1) {
+                if (columns.has(p & -p, row)) {
+                    present |= p & -p;
+                }
+            }
+            writeHeader(columns.timestamps[row], present);
+            for (int p = present; p != 0; p &= p - 1) {
+                writeValue(index(p), columns.get(p & -p, row));
+            }
+        }
+
+        public int rows() {
+            return rows;
+        }
+
+        public int size() {
+            return pos;
+        }
+
+        // 内部缓冲区，有效数据为 [0, size())
+        public byte[] buffer() {
+            return out;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(out, pos);
+        }
+
+        private void writeHeader(int timestamp, int present) {
+            long interval = (long) timestamp - lastTimestamp;
+            long token = zigzag(interval - lastInterval) << 1;
+            boolean changed = present != lastPresent;
+            writeVarLong(changed ? token | 1 : token);
+            if (changed) {
+                writeVarLong(present);
+            }
+            lastTimestamp = timestamp;
+            lastInterval = interval;
+            lastPresent = present;
+            rows++;
+        }
+
+        private void writeValue(int index, double value) {
+            long raw = Math.round(value * SCALES[index]);
+            writeVarLong(zigzag(raw - lastRaw[index]));
+            lastRaw[index] = raw;
+        }
+
+        private void writeVarLong(long v) {
+            if (out.length - pos < 10) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            while ((v & ~0x7FL) != 0) {
+                out[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            out[pos++] = (byte) v;
+        }
+    }
+
+    // 类：Decoder，逐行读取 Encoder 生成的数据，字段以基本类型返回，用法与 HistoryCursor 相同；非线程安全
+    public static class Decoder {
+        private byte[] buf;
+        private int pos;
+        private int end;
+
+        private int timestamp;
+        private long interval;
+        private int present;
+        private final long[] raw = new long[16];
+
+        // 方法：从 byteArray[offset, offset+len) 开始一个新的流
+        public Decoder reset(byte[] byteArray, int offset, int len) {
+            if (len < 1) {
+                throw new DecodeException(DecodeStatus.SHORT_HEADER, "序列数据为空");
+            }
+            if (byteArray[offset] != VERSION) {
+                throw new DecodeException(DecodeStatus.BAD_PAYLOAD, "不支持的序列数据版本：" + byteArray[offset]);
+            }
+            this.buf = byteArray;
+            this.pos = offset + 1;
+            this.end = offset + len;
+            this.timestamp = 0;
+            this.interval = 0;
+            this.present = 0;
+            Arrays.fill(raw, 0);
+            return this;
+        }
+
+        // 方法：前进到下一行，没有更多数据时返回 false；数据不完整时抛 DecodeException
+        public boolean next() {
+            if (pos >= end) {
+                return false;
+            }
+            long token = readVarLong();
+            interval += unzigzag(token >>> 1);
+            timestamp = (int) (timestamp + interval);
+            if ((token & 1) != 0) {
+                present = (int) readVarLong() & VALUE_FIELDS;
+            }
+            for (int p = present; p != 0; p &= p - 1) {
+                int i = index(p);
+                raw[i] += unzigzag(readVarLong());
+            }
+            return true;
+        }
+
+        public int timestamp() {
+            return timestamp;
+        }
+
+        // 当前行出现的字段，不含 TIMESTAMP
+        public int present() {
+            return present;
+        }
+
+        public boolean has(int field) {
+            return (present & field) != 0;
+        }
+
+        // 方法：按字段标志读取当前行的值
+        public double value(int field) {
+            int i = index(field);
+            return SCALES[i] == 1 ? raw[i] : raw[i] / SCALES[i];
+        }
+
+        // 方法：把当前行追加到 columns
+        public void addTo(HistoryColumns columns) {
+            int row = columns.addRow(present | HistoryCursor.TIMESTAMP);
+            columns.timestamps[row] = timestamp;
+            for (int p = VALUE_FIELDS; p != 0; p &= p - 1) {
+                columns.set(p & -p, row, (present & p & -p) != 0 ? value(p & -p) : 0);
+            }
+        }
+
+        private long readVarLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= end) {
+                    throw new DecodeException(DecodeStatus.BAD_LENGTH, "序列数据不完整");
+                }
+                byte b = buf[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return v;
+                }
+            }
+            throw new DecodeException(DecodeStatus.BAD_PAYLOAD, "变长整数过长");
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    // 主方法：对比示例历史数据按 double、按 SensorData.toString 和按本格式存储的大小
+    public static void main(String[] args) {
+        int records = 1000;
+        byte[] history = new byte[6 + records * 6];
+        int pos = HistoryFixture.writeHeader(history, 0, 1783653360, 60);
+        for (int i = 0; i < records; i++) {
+            int temperature = 500 + 200 + (int) (30 * Math.sin(i / 50.0));
+            int humidity = 450 + (int) (40 * Math.cos(i / 70.0));
+            pos = HistoryFixture.writeRecord(history, pos, temperature, humidity, 10132 + i / 100, 90 - i / 200);
+        }
+
+        HistoryCursor cursor = new HistoryCursor();
+        HistoryColumns columns = new HistoryColumns().addAll(cursor.resetHistory(history, 0, history.length, 0x41));
+        byte[] encoded = encode(columns);
+
+        HistoryColumns decoded = new HistoryColumns();
+        decode(encoded, 0, encoded.length, decoded);
+        boolean same = decoded.size == columns.size && decoded.columns == columns.columns;
+        for (int row = 0; same && row < columns.size; row++) {
+            for (int p = columns.columns; p != 0; p &= p - 1) {
+                same &= columns.has(p & -p, row) == decoded.has(p & -p, row)
+                        && columns.get(p & -p, row) == decoded.get(p & -p, row);
+            }
+        }
+
+        long text = 0;
+        cursor.resetHistory(history, 0, history.length, 0x41);
+        while (cursor.next()) {
+            text += cursor.toSensorData().toString().length();
+        }
+        int doubles = records * Integer.bitCount(columns.columns) * 8;
+        System.out.printf("rows=%d same=%b encoded=%d bytes (%.2f B/row), doubles=%d bytes, text=%d bytes%n",
+                columns.size, same, encoded.length, encoded.length / (double) records, doubles, text);
+    }
+}
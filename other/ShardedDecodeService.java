@@ -0,0 +1,470 @@
+package other;
+
+// FIXME rename package
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+// 类：ShardedDecodeService，按设备分片的多核解码运行时
+// 设备号哈希到固定的分片，每个分片一个工作线程和一个 ShardHandler。服务本身不保存设备状态；
+// handler 只在本分片线程上调用，其中按设备保存的状态（例如示例中的处理顺序）不需要加锁。
+// TLVDecoder 的设备上下文缓存等全局状态仍是所有分片共享的（分段加锁）。
+// 每个接入线程通过 producer() 拿到自己的 Producer，用完后 close()；
+// Producer 到每个分片各有一个单生产者单消费者的无锁环形队列，入队出队只有 release/acquire 写读，没有 CAS 和锁。
+// 同一设备的数据经同一个 Producer 提交时，按提交顺序在同一线程上处理。
+public class ShardedDecodeService implements AutoCloseable {
+
+    // 回调：每个分片一个实例，只在该分片的工作线程上调用；payload 只在回调期间有效
+    public interface ShardHandler {
+        void onFrame(String deviceId, byte[] payload, int offset, int len, long tag);
+
+        // 队列暂时为空时调用，可用于定时刷新批次
+        default void onIdle() {
+        }
+
+        // onFrame 抛出异常时调用，该帧已计入 failedCount；不影响分片上的其他设备
+        // onIdle / onClose 抛出的异常同样计数并在这里通知，此时 deviceId 为 null、tag 为 -1
+        default void onError(String deviceId, long tag, RuntimeException e) {
+        }
+
+        // 服务关闭、队列处理完后调用
+        default void onClose() {
+        }
+    }
+
+    private final Shard[] shards;
+    private final int ringCapacity;
+    private final AtomicInteger producerCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    // shardCount：分片数（即工作线程数）；ringCapacity：每个 Producer 到每个分片的队列容量，向上取 2 的幂；
+    // handlers：按分片序号创建 ShardHandler
+    public ShardedDecodeService(int shardCount, int ringCapacity, IntFunction<? extends ShardHandler> handlers) {
+        if (shardCount < 1 || ringCapacity < 2) {
+            throw new IllegalArgumentException("shardCount must be >= 1 and ringCapacity >= 2");
+        }
+        this.ringCapacity = Integer.highestOneBit(ringCapacity * 2 - 1);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, handlers.apply(i));
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    // 方法：设备所属的分片
+    public int shardOf(String deviceId) {
+        int h = deviceId.hashCode();
+        h ^= h >>> 16;
+        return (h & 0x7FFFFFFF) % shards.length;
+    }
+
+    // 方法：为当前接入线程创建一个 Producer，Producer 只能由一个线程使用，不再提交时调用 Producer.close()
+    public Producer producer() {
+        if (closed) {
+            throw new IllegalStateException("service closed");
+        }
+        producerCount.incrementAndGet();
+        Producer producer = new Producer();
+        for (Shard shard : shards) {
+            shard.addRing(producer.rings[shard.index]);
+        }
+        return producer;
+    }
+
+    // 方法：停止接收，等各分片处理完已提交的数据后返回；调用前应先停止各接入线程的提交
+    // 等待期间被中断时仍等到处理完，返回前恢复线程的中断状态
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        boolean interrupted = false;
+        for (Shard shard : shards) {
+            while (shard.thread.isAlive()) {
+                try {
+                    shard.thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 未关闭的 Producer 数
+    public int producerCount() {
+        return producerCount.get();
+    }
+
+    public long processedCount() {
+        long n = 0;
+        for (Shard shard : shards) {
+            n += shard.processed;
+        }
+        return n;
+    }
+
+    // 各分片已处理的条数，用于观察负载是否均衡
+    public long[] processedByShard() {
+        long[] counts = new long[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            counts[i] = shards[i].processed;
+        }
+        return counts;
+    }
+
+    // onFrame 抛出异常的条数（也计入 processedCount），加上 onIdle / onClose 抛出异常的次数
+    public long failedCount() {
+        long n = 0;
+        for (Shard shard : shards) {
+            n += shard.failed;
+        }
+        return n;
+    }
+
+    public long[] failedByShard() {
+        long[] counts = new long[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            counts[i] = shards[i].failed;
+        }
+        return counts;
+    }
+
+    // 类：Producer，一个接入线程的提交入口，非线程安全
+    public final class Producer implements AutoCloseable {
+        private final SpscRing[] rings;
+        private boolean producerClosed;
+
+        private Producer() {
+            rings = new SpscRing[shards.length];
+            for (int i = 0; i < rings.length; i++) {
+                rings[i] = new SpscRing(ringCapacity);
+            }
+        }
+
+        // 方法：提交一帧，队列满时自旋等待；分片线程处理完之前 payload 仍被引用，不能再修改
+        public void submit(String deviceId, byte[] payload, long tag) {
+            submit(deviceId, payload, 0, payload.length, tag);
+        }
+
+        public void submit(String deviceId, byte[] payload, int offset, int len, long tag) {
+            checkOpen();
+            SpscRing ring = rings[shardOf(deviceId)];
+            int spins = 0;
+            while (!ring.offer(deviceId, payload, offset, len, tag)) {
+                if (closed) {
+                    throw new IllegalStateException("service closed");
+                }
+                spins = backoff(spins);
+            }
+        }
+
+        // 方法：提交一帧，队列满时立即返回 false
+        public boolean offer(String deviceId, byte[] payload, int offset, int len, long tag) {
+            checkOpen();
+            return rings[shardOf(deviceId)].offer(deviceId, payload, offset, len, tag);
+        }
+
+        // 方法：不再提交，已提交的数据照常处理；各分片处理完本 Producer 的队列后将其移除
+        @Override
+        public void close() {
+            if (producerClosed) {
+                return;
+            }
+            producerClosed = true;
+            for (SpscRing ring : rings) {
+                ring.closed = true;
+            }
+            producerCount.decrementAndGet();
+        }
+
+        private void checkOpen() {
+            if (producerClosed) {
+                throw new IllegalStateException("producer closed");
+            }
+            if (closed) {
+                throw new IllegalStateException("service closed");
+            }
+        }
+    }
+
+    // 空转时先自旋，再让出 CPU，最后短暂休眠
+    private static int backoff(int spins) {
+        if (spins < 100) {
+            Thread.onSpinWait();
+        } else if (spins < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        return spins + 1;
+    }
+
+    private final class Shard implements Runnable {
+        final int index;
+        final ShardHandler handler;
+        final Thread thread;
+        // 新 Producer 注册时整体替换，工作线程每轮读取一次
+        volatile SpscRing[] rings = new SpscRing[0];
+        // 只由工作线程写入
+        volatile long processed;
+        volatile long failed;
+
+        Shard(int index, ShardHandler handler) {
+            this.index = index;
+            this.handler = handler;
+            this.thread = new Thread(this, "decode-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        // onFrame / onIdle / onClose 抛出的异常计数后交给 onError
+        void fail(String deviceId, long tag, RuntimeException e) {
+            failed++;
+            try {
+                handler.onError(deviceId, tag, e);
+            } catch (RuntimeException ignored) {
+                // 已经计数，onError 自身的异常不能让分片线程退出
+            }
+        }
+
+        synchronized void addRing(SpscRing ring) {
+            SpscRing[] current = rings;
+            SpscRing[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = ring;
+            rings = next;
+        }
+
+        // 只由工作线程调用，移除已关闭且处理完的队列
+        synchronized void removeRing(SpscRing ring) {
+            SpscRing[] current = rings;
+            SpscRing[] next = new SpscRing[current.length - 1];
+            int n = 0;
+            for (SpscRing r : current) {
+                if (r != ring) {
+                    next[n++] = r;
+                }
+            }
+            rings = next;
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            long count = 0;
+            while (true) {
+                // closed 要在排空前读取，读到 true 之后再排空一轮就不会漏掉数据
+                boolean stopping = closed;
+                int drained = 0;
+                for (SpscRing ring : rings) {
+                    // 同样先读关闭标志再排空，读到 true 之后队列为空就不会再有新数据
+                    boolean ringClosed = ring.closed;
+                    drained += ring.drain(this, 256);
+                    if (ringClosed && ring.isEmpty()) {
+                        removeRing(ring);
+                    }
+                }
+                if (drained > 0) {
+                    count += drained;
+                    processed = count;
+                    idle = 0;
+                } else if (stopping) {
+                    break;
+                } else {
+                    if (idle == 0) {
+                        try {
+                            handler.onIdle();
+                        } catch (RuntimeException e) {
+                            fail(null, -1, e);
+                        }
+                    }
+                    idle = backoff(idle);
+                }
+            }
+            try {
+                handler.onClose();
+            } catch (RuntimeException e) {
+                fail(null, -1, e);
+            }
+        }
+    }
+
+    // 单生产者单消费者环形队列：生产者只写 tail，消费者只写 head，各自用 release 发布、acquire 读取对方的进度
+    static final class SpscRing {
+        private static final VarHandle HEAD;
+        private static final VarHandle TAIL;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                HEAD = lookup.findVarHandle(SpscRing.class, "head", long.class);
+                TAIL = lookup.findVarHandle(SpscRing.class, "tail", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final String[] deviceIds;
+        private final byte[][] payloads;
+        private final int[] offsets;
+        private final int[] lengths;
+        private final long[] tags;
+        private final int mask;
+
+        // head、tail 前后填充，减少与对方频繁写入的字段共享缓存行（字段布局由 JVM 决定，不能完全保证）
+        long p0, p1, p2, p3, p4, p5, p6;
+        private long head;
+        long q0, q1, q2, q3, q4, q5, q6;
+        private long tail;
+        long r0, r1, r2, r3, r4, r5, r6;
+        // 生产者缓存的 head，只有看似已满时才重新读取
+        private long headCache;
+        // Producer.close() 后为 true，之后不再入队
+        volatile boolean closed;
+
+        SpscRing(int capacity) {
+            deviceIds = new String[capacity];
+            payloads = new byte[capacity][];
+            offsets = new int[capacity];
+            lengths = new int[capacity];
+            tags = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        boolean offer(String deviceId, byte[] payload, int offset, int len, long tag) {
+            long t = tail;
+            if (t - headCache > mask) {
+                headCache = (long) HEAD.getAcquire(this);
+                if (t - headCache > mask) {
+                    return false;
+                }
+            }
+            int i = (int) t & mask;
+            deviceIds[i] = deviceId;
+            payloads[i] = payload;
+            offsets[i] = offset;
+            lengths[i] = len;
+            tags[i] = tag;
+            TAIL.setRelease(this, t + 1);
+            return true;
+        }
+
+        boolean isEmpty() {
+            return (long) TAIL.getAcquire(this) == head;
+        }
+
+        // 最多处理 limit 条，返回处理的条数
+        int drain(Shard shard, int limit) {
+            long h = head;
+            long available = (long) TAIL.getAcquire(this) - h;
+            int n = (int) Math.min(available, limit);
+            for (int k = 0; k < n; k++) {
+                int i = (int) (h + k) & mask;
+                try {
+                    shard.handler.onFrame(deviceIds[i], payloads[i], offsets[i], lengths[i], tags[i]);
+                } catch (RuntimeException e) {
+                    shard.fail(deviceIds[i], tags[i], e);
+                }
+                deviceIds[i] = null;
+                payloads[i] = null;
+            }
+            if (n > 0) {
+                HEAD.setRelease(this, h + n);
+            }
+            return n;
+        }
+    }
+
+    // 主方法：本地压测，分别用 1、2、4 …… 个分片解码同样数量的帧，检查每个设备的处理顺序
+    public static void main(String[] args) throws InterruptedException {
+        String src = "4347417200851f00f463506a13f800560321020500070001f008004100320034000000000000003802003a006108003435353031313735110500312e322e3981020008098902004b018a04004c150000650100b36401006474020021107004001e0000002c0100008b010002710400db0e00001d0100015912";
+        byte[] frame = TLVDecoder.hexStringToByteArray(src);
+        String[] ids = new String[10_000];
+        for (int d = 0; d < ids.length; d++) {
+            ids[d] = String.format("582D34%06X", d);
+        }
+
+        load(2, 1, ids, frame, 1_000_000); // 预热
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int shardCount = 1; shardCount <= Math.max(cores, 2); shardCount *= 2) {
+            LoadResult result = load(shardCount, Math.max(1, shardCount / 2), ids, frame, 2_000_000);
+            ShardedDecodeService service = result.service;
+            System.out.printf("shards=%d producers=%d processed=%d failed=%d outOfOrder=%d %.0f frames/s perShard=%s%n",
+                    shardCount, Math.max(1, shardCount / 2), service.processedCount(), service.failedCount(), result.outOfOrder,
+                    service.processedCount() * 1e9 / result.nanos, Arrays.toString(service.processedByShard()));
+        }
+    }
+
+    // 一轮压测的结果
+    private static final class LoadResult {
+        ShardedDecodeService service;
+        int outOfOrder;
+        long nanos;
+    }
+
+    private static LoadResult load(int shardCount, int producers, String[] ids, byte[] frame, int frames)
+            throws InterruptedException {
+        AtomicInteger outOfOrder = new AtomicInteger();
+        ShardedDecodeService service = new ShardedDecodeService(shardCount, 4096, shard -> new ShardHandler() {
+            // 分片内的设备状态，只有本分片线程访问
+            private final Map<String, long[]> lastTag = new HashMap<>();
+            private final DecodeResult result = new DecodeResult();
+
+            @Override
+            public void onFrame(String deviceId, byte[] payload, int offset, int len, long tag) {
+                long[] last = lastTag.computeIfAbsent(deviceId, k -> new long[]{-1});
+                if (tag <= last[0]) {
+                    outOfOrder.incrementAndGet();
+                }
+                last[0] = tag;
+                TLVDecoder.tryDecode(payload, offset, len, deviceId, result);
+            }
+        });
+
+        Thread[] threads = new Thread[producers];
+        long start = System.nanoTime();
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            threads[p] = new Thread(() -> {
+                // 每个设备固定由一个接入线程提交，tag 递增
+                try (Producer producer = service.producer()) {
+                    for (int i = 0; i < frames; i++) {
+                        int d = i % ids.length;
+                        if (d % producers == id) {
+                            producer.submit(ids[d], frame, i);
+                        }
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        service.close();
+
+        LoadResult result = new LoadResult();
+        result.service = service;
+        result.nanos = System.nanoTime() - start;
+        result.outOfOrder = outOfOrder.get();
+        return result;
+    }
+}
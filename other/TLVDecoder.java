@@ -2,20 +2,48 @@ package other;
 
 // FIXME rename package
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 public class TLVDecoder {
 
+    // 0x00 ~ 0xff 的两位小写十六进制字符串，key 和 cmd 直接查表，不再 String.format
+    public static final String[] HEX_KEYS = new String[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            HEX_KEYS[i] = String.format("%02x", i);
+        }
+    }
+
     // 类：SubPack，表示子包
+    // payload 指向原始数据帧，子包内容为 payload[offset, offset+len)，不单独拷贝
     public static class SubPack {
         public String key;
+        public int keyByte; // key 的字节值
         public int len;
         public byte[] payload;
+        public int offset;
 
         public SubPack(String key, int len, byte[] payload) {
-            this.key = key;
+            this(key, len, payload, 0);
+        }
+
+        public SubPack(String key, int len, byte[] payload, int offset) {
+            this(Integer.parseInt(key, 16), len, payload, offset);
+        }
+
+        public SubPack(int keyByte, int len, byte[] payload, int offset) {
+            this.key = HEX_KEYS[keyByte];
+            this.keyByte = keyByte;
             this.len = len;
             this.payload = payload;
+            this.offset = offset;
+        }
+
+        // 拷贝出子包内容，只在确实需要独立数组时调用
+        public byte[] payloadBytes() {
+            return Arrays.copyOfRange(payload, offset, offset + len);
         }
 
         @Override
@@ -23,7 +51,7 @@ public class TLVDecoder {
             return "{" +
                     "key='" + key + '\'' +
                     ", len=" + len +
-                    ", payload=" + bytesToHex(payload) +
+                    ", payload=" + bytesToHex(payload, offset, len) +
                     '}';
         }
     }
@@ -138,12 +166,31 @@ public class TLVDecoder {
 
     // 方法：将字节数组转换为有符号整数（小端序）
     public static int bytesToUIntLittleEndian(byte[] byteArray) {
+        return readUIntLittleEndian(byteArray, 0, byteArray.length);
+    }
+
+    // 方法：从 offset 处直接读取 byteLen 字节的无符号整数（小端序），不拷贝数组
+    public static int readUIntLittleEndian(byte[] byteArray, int offset, int byteLen) {
+        int val = 0;
+        for (int i = 0; i < byteLen; i++) {
+            val |= (byteArray[offset + i] & 0xFF) << (i * 8);
+        }
+        return val;
+    }
+
+    // 方法：从 offset 处直接读取 byteLen 字节的无符号整数（大端序），LoRa 数据使用
+    public static int readUIntBigEndian(byte[] byteArray, int offset, int byteLen) {
         int val = 0;
-        for (int i = 0; i < byteArray.length; i++) {
-            val |= (byteArray[i] & 0xFF) << (i * 8);
+        for (int i = 0; i < byteLen; i++) {
+            val = (val << 8) | (byteArray[offset + i] & 0xFF);
         }
         return val;
     }
+
+    // 方法：从 offset 处直接读取 byteLen 字节的有符号整数（小端序），不拷贝数组
+    public static int readIntLittleEndian(byte[] byteArray, int offset, int byteLen) {
+        return unsignedToSigned(readUIntLittleEndian(byteArray, offset, byteLen), byteLen);
+    }
     
     public static int unsignedToSigned(int val, int byteLen) {
         if (byteLen < 1 || byteLen > 8) {
@@ -168,117 +215,245 @@ public class TLVDecoder {
 
     // 方法：将字节数组转换为十六进制字符串
     public static String bytesToHex(byte[] bytes) {
+        return bytesToHex(bytes, 0, bytes.length);
+    }
+
+    public static String bytesToHex(byte[] bytes, int offset, int len) {
         StringBuilder sb = new StringBuilder();
-        for(byte b : bytes){
-            sb.append(String.format("%02x", b));
+        for (int i = offset; i < offset + len; i++) {
+            sb.append(HEX_KEYS[bytes[i] & 0xFF]);
         }
         return sb.toString();
     }
 
     // 数据包处理
+    // 字节替换+组合包 包的二进制数据如下
+    // 27 3 0 43 43 4 26 3 0 ....27 3 0 43 43 4 26 3 0...
+    // 27 3 0 表示3字节的字节替换，后面三个字节依次替换回 0x1A 0x1B 0x08（0x43 表示不替换）
+    // 26 3 0 表示分包，后面依次为包总数、包序号、当前包长度，再往后是包内容
+    // 每个分包的替换字节放在前一段的末尾
+
+    private static final byte[] ESCAPE_PREFIX = {(byte) 0x27, (byte) 0x03, (byte) 0x00};
+    private static final byte[] SPLIT_PREFIX = {(byte) 0x26, (byte) 0x03, (byte) 0x00};
+    private static final byte[] ESCAPE_TARGET = {(byte) 0x1A, (byte) 0x1B, (byte) 0x08};
 
     public static byte[] escapePacket(byte[] byteArray) {
-        return packetBytesReplace(byteArray);
+        if (byteArray == null) {
+            return null;
+        }
+
+        byte[] processedBytes = byteArray.clone();
+        int len = escapePacket(processedBytes, 0, processedBytes.length);
+        return len == processedBytes.length ? processedBytes : Arrays.copyOf(processedBytes, len);
     }
 
     public static byte[] packetBytesReplace(byte[] byteArray) {
-        if (byteArray == null || byteArray.length < 3) {
-            return byteArray;
+        return escapePacket(byteArray);
+    }
+
+    // tryEscapePacket 返回的错误码 -1 ~ -3 对应的错误信息
+    private static final String[] ESCAPE_ERRORS = {
+            "转义包格式错误：替换字节不完整",
+            "分包格式错误：无法提取包长度",
+            "分包格式错误：包内容超出范围"
+    };
+
+    // 方法：就地还原 byteArray[offset, offset+len) 中的转义包和分包
+    // 结果写回 byteArray[offset, offset+返回值)，整个过程只顺序扫描一遍，不分配内存
+    public static int escapePacket(byte[] byteArray, int offset, int len) {
+        int n = tryEscapePacket(byteArray, offset, len);
+        if (n < 0) {
+            throw new DecodeException(DecodeStatus.BAD_ESCAPE, ESCAPE_ERRORS[-n - 1]);
         }
+        return n;
+    }
 
-        boolean isMatch = (byteArray[0] == (byte) 0x27) 
-                && (byteArray[1] == (byte) 0x03) 
-                && (byteArray[2] == (byte) 0x00);
-        if (!isMatch) {
-            return byteArray;
+    // 转义包还原用的缓冲区，每个线程一个，按需扩容
+    private static final ThreadLocal<byte[]> ESCAPE_BUFFER = ThreadLocal.withInitial(() -> new byte[512]);
+
+    // 方法：是否为转义包或分包，只有以 0x27 / 0x26 开头的数据在还原时需要改写
+    static boolean isEscaped(byte[] byteArray, int offset, int len) {
+        return len > 0 && (byteArray[offset] == (byte) 0x27 || byteArray[offset] == (byte) 0x26);
+    }
+
+    // 方法：把 byteArray[offset, offset+len) 拷贝到当前线程的转义缓冲区并返回，供就地还原；缓冲区在本线程下一次拷贝前有效
+    static byte[] escapeBuffer(byte[] byteArray, int offset, int len) {
+        byte[] buffer = ESCAPE_BUFFER.get();
+        if (buffer.length < len) {
+            buffer = new byte[Math.max(len, buffer.length * 2)];
+            ESCAPE_BUFFER.set(buffer);
         }
+        System.arraycopy(byteArray, offset, buffer, 0, len);
+        return buffer;
+    }
 
-        byte[] replaceBytes = {(byte) 0x1A, (byte) 0x1B, (byte) 0x08};
+    // 方法：同上，格式错误时不抛异常，返回负数错误码
+    static int tryEscapePacket(byte[] byteArray, int offset, int len) {
+        int start = offset;
+        int end = offset + len;
 
+        // 固件错误 多写了个0x27 在此适配
+        if (len >= 2 && byteArray[offset] == (byte) 0x27 && byteArray[offset + 1] == (byte) 0x27) {
+            start++;
+        }
 
-        // 字节替换
-        java.util.Map<Byte, Byte> replaceMap = new java.util.HashMap<>(3);
-        for (int i = 0; i < 3; i++) {
-            byte sourceByte = byteArray[3 + i]; // 待替换字节（第4-6位）
-            if (sourceByte == 0x43) {
-                continue;
+        // 正常帧以 0x43 0x47 开头，不去帧内容里查找 27 3 0 / 26 3 0，避免误命中数据
+        if (start < end && (byteArray[start] == (byte) 0x27 || byteArray[start] == (byte) 0x26)) {
+            int split = indexOf(byteArray, start, end, SPLIT_PREFIX);
+            if (split >= 0) {
+                return escapeSplitPacket(byteArray, offset, start, split, end);
             }
 
-            byte targetByte = replaceBytes[i]; // 对应的目标替换值
-            replaceMap.put(sourceByte, targetByte);
+            int escape = indexOf(byteArray, start, end, ESCAPE_PREFIX);
+            if (escape >= 0) {
+                if (escape + 6 > end) {
+                    return -1;
+                }
+                return escapeBytes(byteArray, escape + 6, end, offset, escape + 3);
+            }
         }
 
-        // 4. 处理剩余字节：从第7位（索引6）开始遍历，替换匹配的字节
-        byte[] processedBytes = new byte[byteArray.length-6];
-        // 遍历剩余字节并替换
-        for (int i = 6; i < byteArray.length; i++) {
-            byte currentByte = byteArray[i];
-            // 如果当前字节在替换Map中，用目标值替换；否则保留原字节
-            processedBytes[i-6] = replaceMap.getOrDefault(currentByte, currentByte);
+        if (start != offset) {
+            System.arraycopy(byteArray, start, byteArray, offset, end - start);
         }
+        return end - start;
+    }
+
+    // 按 26 3 0 拆分后把各段内容依次拼接到 offset 处，格式错误时返回负数错误码
+    // 写入位置始终不超过读取位置，所以可以在原数组上就地处理
+    private static int escapeSplitPacket(byte[] byteArray, int offset, int start, int split, int end) {
+        int write = offset;
+        // 上一段中替换字节可能出现的范围，第一段为包头
+        int tailStart = start;
+
+        while (split >= 0) {
+            int escape = indexOf(byteArray, tailStart, split, ESCAPE_PREFIX);
+            int escapeAt = (escape >= 0 && escape + 6 <= split) ? escape + 3 : -1;
+
+            int head = split + SPLIT_PREFIX.length;
+            if (head + 3 > end) {
+                return -2;
+            }
+            int size = byteArray[head + 2] & 0xFF;
+            int contentStart = head + 3;
+            int contentEnd = contentStart + size;
+            if (contentEnd > end) {
+                return -3;
+            }
 
+            write = escapeBytes(byteArray, contentStart, contentEnd, write, escapeAt);
+            // 包内容按长度截取，之后的数据才是下一段的替换字节和分包头
+            tailStart = contentEnd;
+            split = indexOf(byteArray, contentEnd, end, SPLIT_PREFIX);
+        }
 
-        //System.out.println(bytesToHex(processedBytes));
-        // 5. 返回处理后的字节数组
-        return processedBytes;
+        return write - offset;
     }
 
-    // 方法：解包 TLV 数据
-    public static TlvSubPackList tlvUnpack(byte[] byteArray) {
-        if (byteArray.length < 5) {
-            throw new IllegalArgumentException("字节数组长度不足以解包 TLV 数据");
+    // 把 byteArray[from, to) 按 escapeAt 处的三个替换字节还原后写到 write 处，返回写入后的位置
+    // escapeAt 为 -1 时只搬移不替换
+    private static int escapeBytes(byte[] byteArray, int from, int to, int write, int escapeAt) {
+        if (escapeAt < 0) {
+            System.arraycopy(byteArray, from, byteArray, write, to - from);
+            return write + (to - from);
         }
 
-        byteArray = escapePacket(byteArray);
+        int b0 = byteArray[escapeAt] & 0xFF;
+        int b1 = byteArray[escapeAt + 1] & 0xFF;
+        int b2 = byteArray[escapeAt + 2] & 0xFF;
+        // 0x43 表示该位置不替换
+        return ByteKernels.substitute(byteArray, from, to, write,
+                b0 != 0x43 ? b0 : -1, b1 != 0x43 ? b1 : -1, b2 != 0x43 ? b2 : -1,
+                ESCAPE_TARGET[0], ESCAPE_TARGET[1], ESCAPE_TARGET[2]);
+    }
 
-        String cmd = String.format("%02x", byteArray[2]); // byteArray[2:3].hex()
-        int length = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 3, 5)); // byteArray[3:5]
-        int productId = 0;
+    private static int indexOf(byte[] byteArray, int from, int to, byte[] pattern) {
+        for (int i = from; i + pattern.length <= to; i++) {
+            if (byteArray[i] == pattern[0] && byteArray[i + 1] == pattern[1] && byteArray[i + 2] == pattern[2]) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-        if (byteArray.length < 5 + length) {
-            throw new IllegalArgumentException("字节数组长度不足以提取 payload");
+    // 方法：解包 TLV 数据
+    public static TlvSubPackList tlvUnpack(byte[] byteArray) {
+        return tlvUnpack(byteArray, 0, byteArray.length);
+    }
+
+    // 方法：在 byteArray[offset, offset+len) 窗口上解包 TLV 数据，不修改 byteArray
+    // 返回的 SubPack 直接指向该数组，不拷贝子包内容；转义包和分包先拷贝一份再还原，SubPack 指向该拷贝
+    public static TlvSubPackList tlvUnpack(byte[] byteArray, int offset, int len) {
+        return tlvUnpack(byteArray, offset, len, null);
+    }
+
+    // 方法：同上，加密数据使用 deviceId 注册的秘钥解密（未注册时使用默认秘钥），SubPack 指向解密结果的拷贝
+    public static TlvSubPackList tlvUnpack(byte[] byteArray, int offset, int len, String deviceId) {
+        if (isEscaped(byteArray, offset, len)) {
+            byteArray = Arrays.copyOfRange(byteArray, offset, offset + len);
+            offset = 0;
+            len = escapePacket(byteArray, 0, len);
+        }
+        if (TlvDecryptor.isEncrypted(byteArray, offset, len)) {
+            len = TlvDecryptor.decrypt(byteArray, offset, len, deviceId);
+            byteArray = Arrays.copyOfRange(TlvDecryptor.buffer(), 0, len);
+            offset = 0;
         }
+        return tlvUnpackInPlace(byteArray, offset, len, deviceId);
+    }
 
-        byte[] payload = Arrays.copyOfRange(byteArray, 5, 5 + length);
+    // 方法：同 tlvUnpack，转义包和分包直接在 byteArray 上就地还原，省去一次拷贝；之后 byteArray 中不再是原始数据
+    // 加密数据解密到当前线程的缓冲区，返回的 SubPack 指向该缓冲区，在本线程下一次解密前有效
+    public static TlvSubPackList tlvUnpackInPlace(byte[] byteArray, int offset, int len) {
+        return tlvUnpackInPlace(byteArray, offset, len, null);
+    }
 
-        int index = 0;
-        List<SubPack> subPackList = new ArrayList<>();
-        while (index < length) {
-            if (index + 1 > payload.length) {
-                throw new IllegalArgumentException("子包格式错误：无法提取 key");
-            }
-            String key = String.format("%02x", payload[index]); // payload[index:index+1].hex()
-            index += 1;
+    public static TlvSubPackList tlvUnpackInPlace(byte[] byteArray, int offset, int len, String deviceId) {
+        TlvFrame frame = new TlvFrame().resetInPlace(byteArray, offset, len, deviceId);
+        applyDeviceContext(frame, deviceId);
+        return frame.toSubPackList();
+    }
 
-            if (index + 2 > payload.length) {
-                throw new IllegalArgumentException("子包格式错误：无法提取 subLen");
-            }
-            int subLen = bytesToIntLittleEndian(Arrays.copyOfRange(payload, index, index + 2)); // payload[index:index+2]
-            index += 2;
+    // 设备上下文缓存，容量约 100 万台设备
+    private static volatile DeviceContextCache deviceContexts = new DeviceContextCache(1 << 20);
 
-            if (index + subLen > payload.length) {
-                throw new IllegalArgumentException("子包格式错误：subPayload 超出范围");
-            }
-            byte[] subPayload = Arrays.copyOfRange(payload, index, index + subLen);
-            index += subLen;
-            SubPack subPack = new SubPack(key, subLen, subPayload);
-            subPackList.add(subPack);
+    public static DeviceContextCache getDeviceContextCache() {
+        return deviceContexts;
+    }
 
-            if (key.equals("38")) {
-                productId = bytesToIntLittleEndian(subPayload);
+    public static void setDeviceContextCache(DeviceContextCache cache) {
+        deviceContexts = cache;
+    }
+
+    // 帧中有 0x38 时记录设备的产品id 和固件版本，没有时使用之前缓存的产品id
+    private static void applyDeviceContext(TlvFrame frame, String deviceId) {
+        if (deviceId == null) {
+            return;
+        }
+        DeviceContextCache cache = deviceContexts;
+        if (frame.has(0x38)) {
+            int firmware = frame.find(0x11);
+            cache.update(deviceId, frame.productId(), frame.buffer(),
+                    firmware >= 0 ? frame.offset(firmware) : 0, firmware >= 0 ? frame.length(firmware) : -1);
+        } else {
+            DeviceContextCache.DeviceContext context = cache.get(deviceId);
+            if (context != null) {
+                frame.productId(context.productId);
             }
         }
-
-        return new TlvSubPackList(cmd, length, productId, subPackList);
     }
 
     public static SensorData decodeValveData(byte[] byteArray,int productId) {
+        return decodeValveData(byteArray, 0, productId);
+    }
+
+    public static SensorData decodeValveData(byte[] byteArray, int offset, int productId) {
         SensorData sensorData = new SensorData();
         sensorData.dataType = "event";
 
-        double temperature = (bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 0, 2)) - 500) / 10.0;
-        double valveOpen = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 2, 4)) / 10.0;
-        int battery = byteArray[4] & 0xFF; // 无符号
+        double temperature = (readIntLittleEndian(byteArray, offset, 2) - 500) / 10.0;
+        double valveOpen = readIntLittleEndian(byteArray, offset + 2, 2) / 10.0;
+        int battery = byteArray[offset + 4] & 0xFF; // 无符号
 
         sensorData.temperature = temperature;
         sensorData.valveOpen = valveOpen;
@@ -287,14 +462,18 @@ public class TLVDecoder {
     }
     
     public static SensorData decodeTHData(byte[] byteArray,int productId) {
+        return decodeTHData(byteArray, 0, productId);
+    }
+
+    public static SensorData decodeTHData(byte[] byteArray, int offset, int productId) {
         SensorData sensorData = new SensorData();
         sensorData.dataType = "event";
 
-        int th = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 0, 3));
+        int th = readIntLittleEndian(byteArray, offset, 3);
         double temperature = ((th >> 12) - 500) / 10.0;
         double humidity = (th & 0xFFF) / 10.0;
-        double pressure = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 3, 5))/100.0;
-        int battery = byteArray[5] & 0xFF; // 无符号
+        double pressure = readIntLittleEndian(byteArray, offset + 3, 2)/100.0;
+        int battery = byteArray[offset + 5] & 0xFF; // 无符号
         sensorData.temperature = temperature;
         sensorData.humidity = humidity;
 
@@ -308,25 +487,39 @@ public class TLVDecoder {
 
     // 方法：解码实时数据
     public static List<SensorData> decodeRealTimeData(byte[] byteArray,int productId) {
-        if (byteArray.length < 11) {
-            throw new IllegalArgumentException("实时数据字节数组长度不足");
+        return decodeRealTimeData(byteArray, 0, byteArray.length, productId);
+    }
+
+    public static List<SensorData> decodeRealTimeData(byte[] byteArray, int offset, int len, int productId) {
+        if (len < 11) {
+            throw new DecodeException(DecodeStatus.BAD_PAYLOAD, "实时数据字节数组长度不足");
         }
 
         List<SensorData> sensorDataList = new ArrayList<>();
+        sensorDataList.add(decodeRealTimeRecord(byteArray, offset, len, productId));
+        return sensorDataList;
+    }
 
-        int timestamp = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 0, 4));
+    // 调用方保证 len >= 11
+    private static SensorData decodeRealTimeRecord(byte[] byteArray, int offset, int len, int productId) {
+        int timestamp = readIntLittleEndian(byteArray, offset, 4);
         SensorData sensorData;
-        switch (productId) {
-            case 0x4D:
-                sensorData = decodeValveData(Arrays.copyOfRange(byteArray, 4, byteArray.length),productId);
-                break;
-            default:
-                sensorData = decodeTHData(Arrays.copyOfRange(byteArray, 4, byteArray.length),productId);
-                break;
+        if (productId == 0x4D) {
+            sensorData = decodeValveData(byteArray, offset + 4, productId);
+        } else if (len == 24 || len == 26 || len == 15 || len == 19) {
+            // Robb (24 / 26 字节) 和 FrogS (15 / 19 字节)：与 Go 版 tlvDecodeRealtimeData 一致按长度区分，
+            // 记录与历史数据格式相同，信号强度在记录之后
+            HistoryCursor cursor = CURSOR.get().resetRealtime(byteArray, offset, len, len - 6);
+            cursor.next();
+            sensorData = cursor.toSensorData();
+            sensorData.dataType = "event";
+            return sensorData;
+        } else {
+            sensorData = decodeTHData(byteArray, offset + 4, productId);
         }
 
         
-        int rssi = byteArray[byteArray.length-2] & 0xFF; // 无符号
+        int rssi = byteArray[offset + len - 2] & 0xFF; // 无符号
         if (rssi >= 128) {
             rssi -= 256;
         }
@@ -334,41 +527,33 @@ public class TLVDecoder {
         sensorData.dataType = "event";
         sensorData.timestamp = timestamp;
         sensorData.rssi = rssi;
-        sensorDataList.add(sensorData);
-        return sensorDataList;
+        return sensorData;
     }
 
 
     // 方法：解码历史数据
     public static List<SensorData> decodeHistoryData(byte[] byteArray, int productId) {
-        List<SensorData> sensorDataList = new ArrayList<>();
+        return decodeHistoryData(byteArray, 0, byteArray.length, productId);
+    }
 
-        int timestamp = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 0, 4));
-        int duration = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 4, 6));
-        int index = 6;
-        int i = 0;
-        int packLen = 6;
+    public static List<SensorData> decodeHistoryData(byte[] byteArray, int offset, int len, int productId) {
+        List<SensorData> sensorDataList = new ArrayList<>();
 
-        if (productId == 0x4D) {
-            packLen = 5;
+        HistoryCursor cursor = new HistoryCursor().resetHistory(byteArray, offset, len, productId);
+        while (cursor.next()) {
+            sensorDataList.add(cursor.toSensorData());
         }
 
-        while (index < byteArray.length) {
-            SensorData sensorData = new SensorData();
-            switch (productId) {
-                case 0x4D:
-                    sensorData = decodeValveData(Arrays.copyOfRange(byteArray, index, index+packLen),productId);
-                    break;
-                default:
-                    sensorData = decodeTHData(Arrays.copyOfRange(byteArray, index, index+packLen),productId);
-                    break;
-            }
-            sensorData.timestamp = timestamp + duration* i;
-            sensorData.dataType = "data";
-            sensorDataList.add(sensorData);
+        return sensorDataList;
+    }
+
+    // 方法：解码 0x33 历史数据，每条记录 8 字节
+    public static List<SensorData> decodeHistoryData8(byte[] byteArray, int offset, int len) {
+        List<SensorData> sensorDataList = new ArrayList<>();
 
-            index += packLen;
-            i++;
+        HistoryCursor cursor = new HistoryCursor().resetHistory8(byteArray, offset, len);
+        while (cursor.next()) {
+            sensorDataList.add(cursor.toSensorData());
         }
 
         return sensorDataList;
@@ -376,163 +561,116 @@ public class TLVDecoder {
 
      // 方法：解码v2版本的数据
      public static SensorData decodeHistoryDataV2(byte[] byteArray) {
-        SensorData sensorData = new SensorData();
+        return decodeHistoryDataV2(byteArray, 0, byteArray.length);
+     }
 
-        int timestamp = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 0, 4));
-        sensorData.timestamp = timestamp;
-        
-        int temperatureVal,humidityVal,probTemperatureVal,probHumidityVal,co2PercentVal,co2Val,pressureVl,pm25Val,pm10Val,tvocVal,noiseVal,lightVal;
-	    switch (byteArray[4]) {
-            case 1:
-                temperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 5, 7));
-                humidityVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 7, 9));
-                sensorData.temperature =  temperatureVal/10.0;
-                sensorData.humidity = humidityVal/10.0;
-                break;
-            case 2:
-                temperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 5, 7));
-                sensorData.temperature =  temperatureVal/10.0;
-                break;
-            case 3:
-                temperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 5, 7));
-                humidityVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 7, 9));
-                pressureVl = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 9, 11));
-                sensorData.temperature =  temperatureVal/10.0;
-                sensorData.humidity = humidityVal/10.0;
-                sensorData.pressure = pressureVl/100.0;
-                break;
-            case 4: 
-                temperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 5, 7));
-                humidityVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 7, 9));
-                co2Val = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 9, 11));
-                sensorData.temperature =  temperatureVal/10.0;
-                sensorData.humidity = humidityVal/10.0;
-                sensorData.co2 = co2Val;
-                break;
+     public static SensorData decodeHistoryDataV2(byte[] byteArray, int offset, int len) {
+        HistoryCursor cursor = new HistoryCursor().resetV2(byteArray, offset, len);
+        cursor.next();
+        return cursor.toSensorData();
+    }
 
-    
-            case 6:
-                temperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 5, 7));
-                humidityVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 7, 9));
-                probTemperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 9, 11));
-                sensorData.temperature =  temperatureVal/10.0;
-                sensorData.humidity = humidityVal/10.0;
-                sensorData.probTemperature = probTemperatureVal/10.0;
-                break;
-            case 7:
-                temperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 5, 7));
-                humidityVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 7, 9));
-                probTemperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 9, 11));
-                probHumidityVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 11, 13));
-                sensorData.temperature =  temperatureVal/10.0;
-                sensorData.humidity = humidityVal/10.0;
-                sensorData.probTemperature = probTemperatureVal/10.0;
-                sensorData.probHumidity = probHumidityVal/10.0;
-                break;
-
-            case 8:
-                temperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 5, 7));
-                humidityVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 7, 9));
-                probTemperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 9, 11));
-                probHumidityVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 11, 13));
-                co2PercentVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 13, 15));
-
-                sensorData.temperature =  temperatureVal/10.0;
-                sensorData.humidity = humidityVal/10.0;
-                sensorData.probTemperature = probTemperatureVal/10.0;
-                sensorData.probHumidity = probHumidityVal/10.0;
-                sensorData.co2Percent = co2PercentVal/10.0;
-                break;
-
-            case 9:
-                temperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 5, 7));
-                humidityVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 7, 9));
-                co2PercentVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 9, 11));
-                sensorData.temperature =  temperatureVal/10.0;
-                sensorData.humidity = humidityVal/10.0;
-                sensorData.co2Percent = co2PercentVal/10.0;
-                break;
-
-            case 10:
-                temperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 5, 7));
-                humidityVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 7, 9));
-                co2Val = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 9, 11));
-                pm25Val = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 11, 13));
-                pm10Val = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 13, 15));
-                tvocVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 15, 17));
-                noiseVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 17, 19));
-                lightVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 19, 23));
-
-                sensorData.temperature =  temperatureVal/10.0;
-                sensorData.humidity = humidityVal/10.0;
-                sensorData.co2 = co2Val;
-                sensorData.pm25 = pm25Val;
-                sensorData.pm10 = pm10Val;
-                sensorData.tvoc = tvocVal;
-                sensorData.noise = noiseVal;
-                sensorData.light = lightVal;
-
-            case 0x13:
-                temperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 5, 7));
-                humidityVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 7, 9));
-                co2Val = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 9, 11));
-                pm25Val = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 13, 15));
-                pm10Val = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 17, 19));
-                tvocVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 19, 21));
-                noiseVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 21, 23));
-                lightVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 23, 27));
-                sensorData.temperature =  temperatureVal/10.0;
-                sensorData.humidity = humidityVal/10.0;
-                sensorData.co2 = co2Val;
-                sensorData.pm25 = pm25Val;
-                sensorData.pm10 = pm10Val;
-                sensorData.tvoc = tvocVal;
-                sensorData.noise = noiseVal;
-                sensorData.light = lightVal;
-                break;
-
-            default:
-                temperatureVal = bytesToIntLittleEndian(Arrays.copyOfRange(byteArray, 5, 7));
-                sensorData.temperature =  temperatureVal/10.0;
-                break;
+    // tlvDecode 只在方法内使用子包索引，每个线程复用一个
+    private static final ThreadLocal<TlvFrame> FRAME = ThreadLocal.withInitial(TlvFrame::new);
+
+    // 方法：解析 TLV 数据
+    public static TlvUnpackResult tlvDecode(byte[] byteArray) {
+        return tlvDecode(byteArray, 0, byteArray.length);
+    }
+
+    // 方法：解析 ByteBuffer 中 [position, limit) 的 TLV 数据，不改变 position
+    public static TlvUnpackResult tlvDecode(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return tlvDecode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
         }
 
-        return sensorData;
+        // 堆外内存无法直接访问，整体拷贝一次
+        byte[] byteArray = new byte[buffer.remaining()];
+        buffer.duplicate().get(byteArray);
+        return tlvDecode(byteArray, 0, byteArray.length);
     }
 
-    // 方法：解析 TLV 数据
-    public static TlvUnpackResult tlvDecode(byte[] byteArray) {
-        TlvSubPackList subPackRet = tlvUnpack(byteArray);
-        TlvUnpackResult unPackRet = new TlvUnpackResult(subPackRet.cmd,subPackRet.length);
+    // 方法：解析 byteArray[offset, offset+len) 窗口中的 TLV 数据
+    public static TlvUnpackResult tlvDecode(byte[] byteArray, int offset, int len) {
+        return tlvDecode(byteArray, offset, len, null);
+    }
+
+    // 解析回调，为 null 时不计时
+    private static volatile DecodeListener decodeListener;
+
+    public static DecodeListener getDecodeListener() {
+        return decodeListener;
+    }
+
+    // 方法：注册解析回调（例如 DecodeMetrics），传 null 取消
+    public static void setDecodeListener(DecodeListener listener) {
+        decodeListener = listener;
+    }
+
+    // 方法：解析 TLV 数据，加密数据使用 deviceId 对应的秘钥
+    public static TlvUnpackResult tlvDecode(byte[] byteArray, int offset, int len, String deviceId) {
+        DecodeListener listener = decodeListener;
+        TlvFrame frame = FRAME.get();
+        if (listener == null) {
+            frame.reset(byteArray, offset, len, deviceId);
+            return decodeFrame(frame, deviceId);
+        }
+
+        long start = System.nanoTime();
+        int cmd = -1;
+        TlvUnpackResult result;
+        try {
+            frame.reset(byteArray, offset, len, deviceId);
+            cmd = frame.cmd();
+            result = decodeFrame(frame, deviceId);
+        } catch (RuntimeException e) {
+            listener.onError(e instanceof DecodeException ? ((DecodeException) e).status : DecodeStatus.BAD_PAYLOAD, cmd);
+            throw e;
+        }
+        listener.onFrame(frame, System.nanoTime() - start);
+        return result;
+    }
+
+    private static TlvUnpackResult decodeFrame(TlvFrame frame, String deviceId) {
+        applyDeviceContext(frame, deviceId);
+        TlvUnpackResult unPackRet = new TlvUnpackResult(HEX_KEYS[frame.cmd()], frame.length());
         unPackRet.sensorData = new ArrayList<>();
 
         // 兼容新协议
+        byte[] buf = frame.buffer();
+        int productId = frame.productId();
         int batteryVal = -1;
         int rssi = 0;
-        for (SubPack subPack : subPackRet.subPackList) {
-            switch (subPack.key) {
-                case "14":
-                    List<SensorData> realtimeData = decodeRealTimeData(subPack.payload,subPackRet.productId);
+        for (int i = 0; i < frame.size(); i++) {
+            int subOffset = frame.offset(i);
+            int subLen = frame.length(i);
+            switch (frame.key(i)) {
+                case 0x14:
+                    List<SensorData> realtimeData = decodeRealTimeData(buf, subOffset, subLen, productId);
                     unPackRet.sensorData = realtimeData;
                     break;
                 
-                case "03":
-                    List<SensorData> historyData = decodeHistoryData(subPack.payload,subPackRet.productId);
+                case 0x03:
+                    List<SensorData> historyData = decodeHistoryData(buf, subOffset, subLen, productId);
                     unPackRet.sensorData = historyData;
                     break;
+
+                case 0x33:
+                    unPackRet.sensorData = decodeHistoryData8(buf, subOffset, subLen);
+                    break;
                 
                 // 下面是v2版本的解析
-                case "85":
-                    SensorData unitData = decodeHistoryDataV2(subPack.payload);
+                case 0x85:
+                    SensorData unitData = decodeHistoryDataV2(buf, subOffset, subLen);
                     unPackRet.sensorData.add(unitData);
                     break;
 
-                case "64":
-                    batteryVal = subPack.payload[0];
+                case 0x64:
+                    batteryVal = buf[subOffset];
                     break;
                     
-                case "65":
-                    rssi = subPack.payload[0];
+                case 0x65:
+                    rssi = buf[subOffset];
                     if (rssi >= 128) {
                         rssi -= 256;
                     }
@@ -556,6 +694,161 @@ public class TLVDecoder {
         return unPackRet;
     }
 
+    // 方法：容错解析，不抛异常，结果和错误原因写入 result
+    // 帧头、长度、crc 错误时没有记录；子包超出 payload 时保留之前的子包，被截断的 0x03 / 0x33 历史数据只保留完整的记录；
+    // 内容不足以解析的子包跳过后继续。帧内所有子包都未注册时返回 UNKNOWN_KEY。
+    public static DecodeResult tryDecode(byte[] byteArray, int offset, int len, DecodeResult result) {
+        return tryDecode(byteArray, offset, len, null, result);
+    }
+
+    public static DecodeResult tryDecode(byte[] byteArray, int offset, int len, String deviceId, DecodeResult result) {
+        DecodeListener listener = decodeListener;
+        long start = listener != null ? System.nanoTime() : 0;
+        TlvFrame frame = FRAME.get();
+        result.clear();
+
+        DecodeStatus status = frame.tryReset(byteArray, offset, len, deviceId);
+        result.status = status;
+        result.cmd = frame.cmd();
+        if (status == DecodeStatus.OK || status == DecodeStatus.BAD_LENGTH || status == DecodeStatus.BAD_SUB_PACK) {
+            applyDeviceContext(frame, deviceId);
+            result.length = frame.length();
+            result.productId = frame.productId();
+            decodeFrame(frame, result);
+        }
+
+        if (listener != null) {
+            if (result.ok()) {
+                listener.onFrame(frame, System.nanoTime() - start);
+            } else {
+                listener.onError(result.status, result.cmd);
+            }
+        }
+        return result;
+    }
+
+    // 与 decodeFrame(TlvFrame, String) 规则相同：0x14 / 0x03 / 0x33 覆盖之前的记录，0x85 追加
+    private static void decodeFrame(TlvFrame frame, DecodeResult result) {
+        byte[] buf = frame.buffer();
+        int productId = frame.productId();
+        int batteryVal = -1;
+        int rssi = 0;
+        int known = 0;
+        int last = frame.size() - 1;
+        for (int i = 0; i < frame.size(); i++) {
+            int key = frame.key(i);
+            int subOffset = frame.offset(i);
+            int subLen = frame.length(i);
+            if (TlvKeyRegistry.isRegistered(key)) {
+                known++;
+            } else {
+                result.unknownKeys++;
+            }
+
+            switch (key) {
+                case 0x14:
+                    if (subLen < 11) {
+                        skip(result);
+                        break;
+                    }
+                    result.sensorData.clear();
+                    result.sensorData.add(decodeRealTimeRecord(buf, subOffset, subLen, productId));
+                    break;
+
+                case 0x03:
+                case 0x33:
+                    if (i == last && frame.truncated()) {
+                        // 去掉最后一条不完整的记录
+                        int packLen = HistoryCursor.historyRecordSize(key, productId, subLen);
+                        subLen = subLen < 6 ? 0 : 6 + (subLen - 6) / packLen * packLen;
+                    }
+                    result.sensorData.clear();
+                    HistoryCursor cursor = key == 0x33
+                            ? CURSOR.get().resetHistory8(buf, subOffset, subLen)
+                            : CURSOR.get().resetHistory(buf, subOffset, subLen, productId);
+                    while (cursor.next()) {
+                        result.sensorData.add(cursor.toSensorData());
+                    }
+                    break;
+
+                case 0x85:
+                    // 至少要有时间戳(4) 和记录类型(1)
+                    if (subLen < 5) {
+                        skip(result);
+                        break;
+                    }
+                    result.sensorData.add(decodeHistoryDataV2(buf, subOffset, subLen));
+                    break;
+
+                case 0x64:
+                    if (subLen < 1) {
+                        skip(result);
+                        break;
+                    }
+                    batteryVal = buf[subOffset];
+                    break;
+
+                case 0x65:
+                    if (subLen < 1) {
+                        skip(result);
+                        break;
+                    }
+                    rssi = buf[subOffset];
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        for (int i = 0; i < result.sensorData.size(); i++) {
+            SensorData unitData = result.sensorData.get(i);
+            if (batteryVal >= 0) {
+                unitData.battery = batteryVal;
+            }
+            if (rssi < 0) {
+                unitData.rssi = rssi;
+            }
+        }
+
+        if (known == 0 && frame.size() > 0) {
+            result.fail(DecodeStatus.UNKNOWN_KEY);
+        }
+    }
+
+    private static void skip(DecodeResult result) {
+        result.skippedSubPacks++;
+        result.fail(DecodeStatus.BAD_PAYLOAD);
+    }
+
+    private static final ThreadLocal<HistoryCursor> CURSOR = ThreadLocal.withInitial(HistoryCursor::new);
+
+    // 方法：把 byteArray[offset, offset+len) 整帧的 0x03 / 0x33 / 0x85 历史数据按列追加到 columns，不创建 SensorData
+    // columns 不会被清空，可连续追加多帧后一次写入下游；需要重新开始时先调用 columns.clear()
+    public static HistoryColumns decodeHistoryColumns(byte[] byteArray, int offset, int len, HistoryColumns columns) {
+        return decodeHistoryColumns(byteArray, offset, len, null, columns);
+    }
+
+    public static HistoryColumns decodeHistoryColumns(byte[] byteArray, int offset, int len, String deviceId, HistoryColumns columns) {
+        TlvFrame frame = FRAME.get().reset(byteArray, offset, len, deviceId);
+        applyDeviceContext(frame, deviceId);
+        return columns.addAll(CURSOR.get().reset(frame));
+    }
+
+    // 方法：同上，0x03 / 0x33 历史数据先按子包头的时间戳和间隔查 dedup，已接收过的记录不解析也不追加
+    public static HistoryColumns decodeHistoryColumns(byte[] byteArray, int offset, int len, String deviceId,
+                                                      HistoryDedup dedup, HistoryColumns columns) {
+        TlvFrame frame = FRAME.get().reset(byteArray, offset, len, deviceId);
+        applyDeviceContext(frame, deviceId);
+        return columns.addAll(CURSOR.get().reset(frame).dedup(dedup, deviceId));
+    }
+
+    // 方法：把整帧的 0x03 / 0x33 / 0x85 历史数据逐条推入 aggregator 按时间桶聚合，不保存单条记录，返回推入的条数
+    public static int decodeHistoryInto(byte[] byteArray, int offset, int len, String deviceId, HistoryAggregator aggregator) {
+        TlvFrame frame = FRAME.get().reset(byteArray, offset, len, deviceId);
+        applyDeviceContext(frame, deviceId);
+        return aggregator.addAll(deviceId, CURSOR.get().reset(frame));
+    }
+
     // 主方法
     public static void main(String[] args) {
         //String src = "2703004343034347344D003802002F00110500352E302E36220400303030302C01000067040003000000341000424332363059434E4641523031413034350500352E302E361D010001140C0007D0B069F2102E000064BB00E00D";
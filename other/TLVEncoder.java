@@ -0,0 +1,324 @@
+package other; 
+
+// FIXME rename package
+
+import java.util.*;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+public class TLVEncoder {
+    public static class Command {
+        public int cmd;
+        public int reportIntervl;
+        public int collectInterval;
+        public int valveOpen;
+        public int valveSelfCheck;
+        public int endFlag;
+        public MqttSetting mqttSetting;
+    }
+
+    public static class MqttSetting {
+        public String host;
+        public int port;
+        public String username;
+        public String password;
+        public String clientId;
+        public String upTopic;
+        public String downTopic;
+    }
+
+
+    // 生成crc
+    public static int byteSumU16(byte[] in) {
+        return byteSumU16(in, 0, in.length);
+    }
+
+    // 对 in[offset, offset+len) 求和生成crc，长帧可用 Vector API 加速，见 ByteKernels
+    public static int byteSumU16(byte[] in, int offset, int len) {
+        return ByteKernels.byteSum(in, offset, len);
+    }
+
+    public static byte[] intToBytesLittleEndian(int val, int length) {
+        byte[] bytes = new byte[length];
+        writeLittleEndian(bytes, 0, val, length);
+        return bytes;
+    }
+
+    // 方法：val 的低 length 字节按小端序写入 out[offset, offset+length)
+    public static void writeLittleEndian(byte[] out, int offset, int val, int length) {
+        for (int i = 0; i < length; i++) {
+            out[offset + i] = (byte) (val & 0xFF);
+            val >>= 8;
+        }
+    }
+
+    // 数组按 encodedSize 精确分配，编码过程不会失败
+    public static byte[] tlvEncode(Command cmd) {
+        byte[] out = new byte[encodedSize(cmd)];
+        encodeInto(cmd, ByteBuffer.wrap(out));
+        return out;
+    }
+
+    // 方法：计算命令编码后的总字节数（帧头5字节 + 子包 + crc 2字节）
+    public static int encodedSize(Command cmd) {
+        return 5 + payloadSize(cmd) + 2;
+    }
+
+    // 方法：把命令从 buffer 当前 position 开始直接编码进去，返回写入的字节数
+    // 先计算出总长度，一次写完帧头、子包，crc 在写入时累加，不产生中间数组
+    public static int encodeInto(Command cmd, ByteBuffer buffer) {
+        int size = payloadSize(cmd);
+        int total = 5 + size + 2;
+        if (buffer.remaining() < total) {
+            throw new BufferOverflowException();
+        }
+
+        int cmdType = cmd.cmd;
+        if (cmdType == 0) {
+            cmdType = 0x32;
+        }
+        if (cmd.valveOpen > 0 || cmd.valveSelfCheck > 0) {
+            cmdType = 0x3D;
+        }
+
+        FrameWriter writer = new FrameWriter(buffer);
+        writer.put(0x43);
+        writer.put(0x47);
+        writer.put(cmdType);
+        writer.putLittleEndian(size, 2);
+
+        if (cmd.collectInterval > 0) {
+            writer.put(0x05);
+            writer.putLittleEndian(2, 2);
+            writer.putLittleEndian(cmd.collectInterval, 2);
+        }
+        if (cmd.reportIntervl > 0) {
+            writer.put(0x04);
+            writer.putLittleEndian(2, 2);
+            writer.putLittleEndian(cmd.reportIntervl / 60, 2);
+        }
+        if (cmd.valveOpen > 0) {
+            writer.put(0x72);
+            writer.putLittleEndian(2, 2);
+            writer.putLittleEndian(cmd.valveOpen * 10, 2);
+        }
+        if (cmd.valveSelfCheck > 0) {
+            writer.put(0x73);
+            writer.putLittleEndian(1, 2);
+            writer.put(0);
+        }
+        if (cmd.mqttSetting != null) {
+            MqttSetting mqtt = cmd.mqttSetting;
+            writer.put(0x25);
+            writer.putLittleEndian(mqttSettingLength(mqtt), 2);
+            // 与 "%s %s %s %s %s %s %s" 格式化结果相同，注意 downTopic 在 upTopic 之前
+            writer.putUtf8(String.valueOf(mqtt.host));
+            writer.put(' ');
+            writer.putDecimal(mqtt.port);
+            writer.put(' ');
+            writer.putUtf8(String.valueOf(mqtt.username));
+            writer.put(' ');
+            writer.putUtf8(String.valueOf(mqtt.password));
+            writer.put(' ');
+            writer.putUtf8(String.valueOf(mqtt.clientId));
+            writer.put(' ');
+            writer.putUtf8(String.valueOf(mqtt.downTopic));
+            writer.put(' ');
+            writer.putUtf8(String.valueOf(mqtt.upTopic));
+        }
+        if (cmd.endFlag > 0) {
+            writer.put(0x1D);
+            writer.putLittleEndian(1, 2);
+            writer.put(cmd.endFlag);
+        }
+
+        int crc = writer.sum & 0xFFFF;
+        writer.putLittleEndian(crc, 2);
+        return total;
+    }
+
+    // 方法：把一批命令依次编码进同一个 buffer，返回写入的总字节数
+    // frameOffsets 不为空时记录每一帧相对起始 position 的偏移
+    public static int encodeBatch(List<Command> cmds, ByteBuffer buffer, int[] frameOffsets) {
+        int start = buffer.position();
+        for (int i = 0; i < cmds.size(); i++) {
+            if (frameOffsets != null) {
+                frameOffsets[i] = buffer.position() - start;
+            }
+            encodeInto(cmds.get(i), buffer);
+        }
+        return buffer.position() - start;
+    }
+
+    // 方法：按总长度分配一块堆外内存，把一批命令连续编码进去，返回已 flip 的 buffer
+    public static ByteBuffer encodeBatch(List<Command> cmds) {
+        int total = 0;
+        for (int i = 0; i < cmds.size(); i++) {
+            total += encodedSize(cmds.get(i));
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(total);
+        encodeBatch(cmds, buffer, null);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int payloadSize(Command cmd) {
+        int size = 0;
+        if (cmd.collectInterval > 0) {
+            size += 5;
+        }
+        if (cmd.reportIntervl > 0) {
+            size += 5;
+        }
+        if (cmd.valveOpen > 0) {
+            size += 5;
+        }
+        if (cmd.valveSelfCheck > 0) {
+            size += 4;
+        }
+        if (cmd.mqttSetting != null) {
+            size += mqttSettingLength(cmd.mqttSetting) + 3;
+        }
+        if (cmd.endFlag > 0) {
+            size += 4;
+        }
+        return size;
+    }
+
+    // mqtt 配置字符串按 utf-8 编码后的长度，7个字段之间有6个空格
+    private static int mqttSettingLength(MqttSetting mqtt) {
+        return utf8Length(String.valueOf(mqtt.host))
+                + decimalLength(mqtt.port)
+                + utf8Length(String.valueOf(mqtt.username))
+                + utf8Length(String.valueOf(mqtt.password))
+                + utf8Length(String.valueOf(mqtt.clientId))
+                + utf8Length(String.valueOf(mqtt.downTopic))
+                + utf8Length(String.valueOf(mqtt.upTopic))
+                + 6;
+    }
+
+    // 整数十进制表示的字符数
+    private static int decimalLength(int val) {
+        long v = val;
+        int len = 1;
+        if (v < 0) {
+            len++;
+            v = -v;
+        }
+        while (v >= 10) {
+            v /= 10;
+            len++;
+        }
+        return len;
+    }
+
+    private static int utf8Length(String s) {
+        int len = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                len += 1;
+            } else if (c < 0x800) {
+                len += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                len += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                len += 1; // 不成对的代理字符编码为 '?'
+            } else {
+                len += 3;
+            }
+        }
+        return len;
+    }
+
+    // 写入时同时累加字节和，用于生成crc
+    private static final class FrameWriter {
+        private final ByteBuffer buffer;
+        private int sum;
+
+        FrameWriter(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void put(int b) {
+            buffer.put((byte) b);
+            sum += b & 0xFF;
+        }
+
+        void putLittleEndian(int val, int length) {
+            for (int i = 0; i < length; i++) {
+                put(val & 0xFF);
+                val >>= 8;
+            }
+        }
+
+        void putDecimal(int val) {
+            long v = val;
+            if (v < 0) {
+                put('-');
+                v = -v;
+            }
+            long divisor = 1;
+            while (divisor * 10 <= v) {
+                divisor *= 10;
+            }
+            for (; divisor > 0; divisor /= 10) {
+                put('0' + (int) (v / divisor % 10));
+            }
+        }
+
+        void putUtf8(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    put(c);
+                } else if (c < 0x800) {
+                    put(0xC0 | (c >> 6));
+                    put(0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    put(0xF0 | (cp >> 18));
+                    put(0x80 | ((cp >> 12) & 0x3F));
+                    put(0x80 | ((cp >> 6) & 0x3F));
+                    put(0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    put('?');
+                } else {
+                    put(0xE0 | (c >> 12));
+                    put(0x80 | ((c >> 6) & 0x3F));
+                    put(0x80 | (c & 0x3F));
+                }
+            }
+        }
+    }
+
+    public static String bytesToHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02X", b)); // 两位大写十六进制
+        }
+        return sb.toString();
+    }
+
+    // 主方法
+    public static void main(String[] args) {
+        TLVEncoder encode = new TLVEncoder();
+        Command cmd = new Command();
+
+        cmd.cmd = 0x3a; // mqtt cmd 固定值
+        cmd.endFlag = 1;
+        cmd.mqttSetting = new MqttSetting();
+        cmd.mqttSetting.host = "192.168.1.100";
+        cmd.mqttSetting.port = 1883;
+        cmd.mqttSetting.username = "user";
+        cmd.mqttSetting.password = "password";
+        cmd.mqttSetting.clientId = "clientId";
+        cmd.mqttSetting.downTopic = "qingping/mac/down";
+        cmd.mqttSetting.upTopic = "qingping/mac/up";
+        byte[] bs = encode.tlvEncode(cmd);
+
+        // 下发命令 直接下发数组，hex编码是为方便debug
+        System.out.println(bytesToHex(bs));
+    }
+}
@@ -0,0 +1,143 @@
+package other;
+
+// FIXME rename package
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// 类：TlvBatchDecoder，批量解析
+// 用于断线重连后回放大量积压的上行数据：按下标二分拆成 fork-join 任务并行解析，结果按输入顺序返回。
+// 单帧解析失败只记录在该帧的结果里，不影响整批。
+public class TlvBatchDecoder {
+
+    // 类：FrameResult，单帧解析结果
+    // 格式错误只记录在 status 上，result 仍包含能解析出的记录（帧头不完整时为 null）
+    public static class FrameResult {
+        public int index;
+        public DecodeStatus status;
+        public TLVDecoder.TlvUnpackResult result;
+
+        public boolean ok() {
+            return status == DecodeStatus.OK;
+        }
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "index=" + index +
+                    ", status=" + status +
+                    ", result=" + result +
+                    '}';
+        }
+    }
+
+    private static final ThreadLocal<DecodeResult> DECODE_RESULT = ThreadLocal.withInitial(DecodeResult::new);
+
+    private final ForkJoinPool pool;
+    private final int batchSize;
+
+    public TlvBatchDecoder() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public TlvBatchDecoder(ForkJoinPool pool) {
+        this(pool, 256);
+    }
+
+    // batchSize：单个任务最多处理的帧数，小于等于该值时不再拆分
+    public TlvBatchDecoder(ForkJoinPool pool, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be >= 1");
+        }
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    // 方法：并行解析一批数据帧，返回结果与输入一一对应
+    public List<FrameResult> decodeBatch(List<byte[]> frames) {
+        byte[][] input = frames.toArray(new byte[0][]);
+        FrameResult[] results = new FrameResult[input.length];
+        if (input.length > 0) {
+            pool.invoke(new DecodeTask(input, results, 0, input.length));
+        }
+        return Arrays.asList(results);
+    }
+
+    // 方法：解析一个数据帧流，先收集帧引用再按批拆分，结果保持流的顺序
+    public List<FrameResult> decodeAll(Stream<byte[]> frames) {
+        return decodeBatch(frames.collect(Collectors.toList()));
+    }
+
+    // 方法：解析单帧，坏帧不抛异常，错误原因记录在结果中；frame 为 null 时按帧头不完整处理
+    public static FrameResult decodeFrame(int index, byte[] frame) {
+        FrameResult frameResult = new FrameResult();
+        frameResult.index = index;
+        if (frame == null) {
+            frameResult.status = DecodeStatus.SHORT_HEADER;
+            return frameResult;
+        }
+        DecodeResult decoded = TLVDecoder.tryDecode(frame, 0, frame.length, DECODE_RESULT.get());
+        frameResult.status = decoded.status;
+        frameResult.result = decoded.toUnpackResult();
+        return frameResult;
+    }
+
+    private final class DecodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[][] frames;
+        private final FrameResult[] results;
+        private final int from;
+        private final int to;
+
+        DecodeTask(byte[][] frames, FrameResult[] results, int from, int to) {
+            this.frames = frames;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchSize) {
+                for (int i = from; i < to; i++) {
+                    results[i] = decodeFrame(i, frames[i]);
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new DecodeTask(frames, results, from, mid), new DecodeTask(frames, results, mid, to));
+        }
+    }
+
+    // 主方法：用示例数据对比不同并行度下的吞吐
+    public static void main(String[] args) {
+        String src = "4347417200851f00f463506a13f800560321020500070001f008004100320034000000000000003802003a006108003435353031313735110500312e322e3981020008098902004b018a04004c150000650100b36401006474020021107004001e0000002c0100008b010002710400db0e00001d0100015912";
+        byte[] bs = TLVDecoder.hexStringToByteArray(src);
+        byte[][] frames = new byte[1_000_000][];
+        Arrays.fill(frames, bs);
+        frames[1] = new byte[]{0x43, 0x47}; // 故意放一个坏帧和一个 null
+        frames[2] = null;
+        List<byte[]> frameList = Arrays.asList(frames);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= cores; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            TlvBatchDecoder decoder = new TlvBatchDecoder(pool);
+            decoder.decodeBatch(frameList); // 预热
+
+            long start = System.nanoTime();
+            List<FrameResult> results = decoder.decodeBatch(frameList);
+            long cost = System.nanoTime() - start;
+            pool.shutdown();
+
+            System.out.printf("parallelism=%d frames=%d %.0f frames/s, frame[1] status=%s, frame[2] status=%s%n",
+                    parallelism, results.size(), results.size() * 1e9 / cost, results.get(1).status, results.get(2).status);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package other;
+
+// FIXME rename package
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 类：TlvDecryptor，AES 解密
+// 不以 0x43 0x47 开头的数据帧为 AES-128 ECB + PKCS7 加密，与 Go 版 AESDecrypt 一致。
+// 每个线程缓存一个 Cipher 和上一次使用的秘钥，秘钥不变时不重复 getInstance / init；
+// 解密结果写入线程内复用的缓冲区，可直接交给 TLVDecoder.tlvUnpack 解析。
+public class TlvDecryptor {
+
+    // 默认秘钥
+    public static final String DEFAULT_KEY = "CF64060BDCF33F15A4E9166F7778CFE4";
+
+    private static final int BLOCK_SIZE = 16;
+
+    private static final SecretKeySpec DEFAULT_KEY_SPEC = toKeySpec(DEFAULT_KEY);
+
+    // 设备秘钥缓存，key 为设备 mac / sn
+    private static final ConcurrentHashMap<String, SecretKeySpec> DEVICE_KEYS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<DecryptState> STATE = ThreadLocal.withInitial(DecryptState::new);
+
+    private static final class DecryptState {
+        Cipher cipher;
+        SecretKeySpec key;
+        byte[] buffer = new byte[512];
+    }
+
+    // 方法：注册设备秘钥（32位十六进制字符串）
+    public static void registerKey(String deviceId, String hexKey) {
+        DEVICE_KEYS.put(deviceId, toKeySpec(hexKey));
+    }
+
+    public static void removeKey(String deviceId) {
+        DEVICE_KEYS.remove(deviceId);
+    }
+
+    // 方法：判断 byteArray[offset, offset+len) 是否为加密数据
+    public static boolean isEncrypted(byte[] byteArray, int offset, int len) {
+        return len >= 2 && (byteArray[offset] != (byte) 0x43 || byteArray[offset + 1] != (byte) 0x47);
+    }
+
+    // 方法：用设备秘钥解密 byteArray[offset, offset+len)，deviceId 为空或未注册时使用默认秘钥
+    // 明文写入当前线程的缓冲区 buffer()，返回去掉填充后的长度；缓冲区在本线程下一次解密前有效
+    public static int decrypt(byte[] byteArray, int offset, int len, String deviceId) {
+        int n = tryDecrypt(byteArray, offset, len, deviceId);
+        if (n < 0) {
+            throw new DecodeException(DecodeStatus.DECRYPT_FAILED, DECRYPT_ERRORS[-n - 1]);
+        }
+        return n;
+    }
+
+    // tryDecrypt 返回的错误码 -1 ~ -3 对应的错误信息
+    private static final String[] DECRYPT_ERRORS = {
+            "密文长度必须是16的倍数",
+            "AES 解密失败",
+            "AES 解密失败：填充长度错误"
+    };
+
+    // 方法：同上，失败时不抛异常，返回负数错误码
+    static int tryDecrypt(byte[] byteArray, int offset, int len, String deviceId) {
+        if (len == 0 || len % BLOCK_SIZE != 0) {
+            return -1;
+        }
+
+        SecretKeySpec key = DEFAULT_KEY_SPEC;
+        if (deviceId != null) {
+            SecretKeySpec deviceKey = DEVICE_KEYS.get(deviceId);
+            if (deviceKey != null) {
+                key = deviceKey;
+            }
+        }
+
+        DecryptState state = STATE.get();
+        if (state.buffer.length < len) {
+            state.buffer = new byte[Math.max(len, state.buffer.length * 2)];
+        }
+
+        int plainLen;
+        try {
+            if (state.cipher == null) {
+                state.cipher = Cipher.getInstance("AES/ECB/NoPadding");
+            }
+            if (state.key != key) {
+                state.cipher.init(Cipher.DECRYPT_MODE, key);
+                state.key = key;
+            }
+            plainLen = state.cipher.doFinal(byteArray, offset, len, state.buffer, 0);
+        } catch (GeneralSecurityException e) {
+            state.key = null;
+            return -2;
+        }
+
+        // PKCS7 去填充
+        int padLength = state.buffer[plainLen - 1] & 0xFF;
+        if (padLength >= plainLen) {
+            return -3;
+        }
+        return plainLen - padLength;
+    }
+
+    // 当前线程的解密缓冲区
+    public static byte[] buffer() {
+        return STATE.get().buffer;
+    }
+
+    private static SecretKeySpec toKeySpec(String hexKey) {
+        byte[] key = TLVDecoder.hexStringToByteArray(hexKey);
+        if (key.length < BLOCK_SIZE) {
+            throw new IllegalArgumentException("秘钥长度不足16字节");
+        }
+        return new SecretKeySpec(key, 0, BLOCK_SIZE, "AES");
+    }
+}
@@ -0,0 +1,280 @@
+package other;
+
+// FIXME rename package
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 类：TlvFrame，数据帧的子包索引视图
+// 解包时只记录每个子包的 (key, offset, len)，三个 int 一组连续存放，不创建 SubPack 和十六进制字符串；
+// find(key) 通过 256 项下标表 O(1) 查找。实例可通过 reset 重复使用，toString 时才格式化十六进制。
+public class TlvFrame {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private byte[] buffer;
+    private int cmd;
+    private int length;
+    private int productId;
+    private int count;
+    // 最后一个子包是否被截断，只在 tryReset 后可能为 true
+    private boolean truncated;
+    // 最近一次解包失败的原因
+    private String error;
+    private int[] entries = new int[INITIAL_CAPACITY * 3];
+    // 下标为 key，值为第一个该 key 子包的序号 + 1，0 表示不存在
+    private final short[] index = new short[256];
+
+    // 方法：解包 byteArray[offset, offset+len)，与 TLVDecoder.tlvUnpack 规则相同，不修改 byteArray
+    // 转义包和分包拷贝到当前线程的缓冲区后还原，加密数据解密到当前线程的缓冲区，此时 buffer() 为该缓冲区
+    public TlvFrame reset(byte[] byteArray, int offset, int len) {
+        return reset(byteArray, offset, len, null);
+    }
+
+    public TlvFrame reset(byte[] byteArray, int offset, int len, String deviceId) {
+        if (TLVDecoder.isEscaped(byteArray, offset, len)) {
+            byteArray = TLVDecoder.escapeBuffer(byteArray, offset, len);
+            offset = 0;
+        }
+        return resetInPlace(byteArray, offset, len, deviceId);
+    }
+
+    // 方法：同 reset，转义包和分包直接在 byteArray 上就地还原，省去一次拷贝；之后 byteArray 中不再是原始数据
+    public TlvFrame resetInPlace(byte[] byteArray, int offset, int len, String deviceId) {
+        clear();
+
+        len = TLVDecoder.escapePacket(byteArray, offset, len);
+
+        // 不以 0x43 0x47 开头的为加密数据
+        if (TlvDecryptor.isEncrypted(byteArray, offset, len)) {
+            len = TlvDecryptor.decrypt(byteArray, offset, len, deviceId);
+            byteArray = TlvDecryptor.buffer();
+            offset = 0;
+        }
+
+        DecodeStatus status = parse(byteArray, offset, len, true);
+        if (status != DecodeStatus.OK) {
+            throw new DecodeException(status, error);
+        }
+        return this;
+    }
+
+    // 方法：容错解包，不抛异常，返回第一个遇到的错误
+    // payload 长度超出数据范围时按实际数据解析 (BAD_LENGTH)；子包超出 payload 时截断到 payload 末尾并停止 (BAD_SUB_PACK)，
+    // truncated() 返回 true；之前的子包照常可用。末尾带有 crc 时校验字节和，不一致返回 BAD_CRC 且不解析子包。
+    // 0x38 产品id 子包长度不在 1~8 字节时返回 BAD_PAYLOAD（reset 抛 DecodeException）。与 reset 相同，不修改 byteArray
+    public DecodeStatus tryReset(byte[] byteArray, int offset, int len, String deviceId) {
+        if (TLVDecoder.isEscaped(byteArray, offset, len)) {
+            byteArray = TLVDecoder.escapeBuffer(byteArray, offset, len);
+            offset = 0;
+        }
+        return tryResetInPlace(byteArray, offset, len, deviceId);
+    }
+
+    // 方法：同 tryReset，转义包和分包在 byteArray 上就地还原
+    public DecodeStatus tryResetInPlace(byte[] byteArray, int offset, int len, String deviceId) {
+        clear();
+        cmd = -1;
+        length = 0;
+
+        len = TLVDecoder.tryEscapePacket(byteArray, offset, len);
+        if (len < 0) {
+            return DecodeStatus.BAD_ESCAPE;
+        }
+
+        if (TlvDecryptor.isEncrypted(byteArray, offset, len)) {
+            len = TlvDecryptor.tryDecrypt(byteArray, offset, len, deviceId);
+            if (len < 0) {
+                return DecodeStatus.DECRYPT_FAILED;
+            }
+            byteArray = TlvDecryptor.buffer();
+            offset = 0;
+        }
+
+        int payloadLen = len >= 5 ? TLVDecoder.readIntLittleEndian(byteArray, offset + 3, 2) : -1;
+        if (payloadLen >= 0) {
+            int end = offset + 5 + payloadLen;
+            if (end + 2 <= offset + len
+                    && TLVEncoder.byteSumU16(byteArray, offset, end - offset) != TLVDecoder.readUIntLittleEndian(byteArray, end, 2)) {
+                cmd = byteArray[offset + 2] & 0xFF;
+                return DecodeStatus.BAD_CRC;
+            }
+        }
+        return parse(byteArray, offset, len, false);
+    }
+
+    // strict 为 false 时尽量解析出完整的子包，见 tryReset
+    private DecodeStatus parse(byte[] byteArray, int offset, int len, boolean strict) {
+        clear();
+
+        if (len < 5) {
+            error = "字节数组长度不足以解包 TLV 数据";
+            return DecodeStatus.SHORT_HEADER;
+        }
+
+        buffer = byteArray;
+        cmd = byteArray[offset + 2] & 0xFF;
+        length = TLVDecoder.readIntLittleEndian(byteArray, offset + 3, 2);
+
+        DecodeStatus status = DecodeStatus.OK;
+        int limit = length;
+        if (length < 0 || len < 5 + length) {
+            error = "字节数组长度不足以提取 payload";
+            if (strict) {
+                return DecodeStatus.BAD_LENGTH;
+            }
+            status = DecodeStatus.BAD_LENGTH;
+            limit = len - 5;
+        }
+
+        int payloadStart = offset + 5;
+        int i = 0;
+        while (i < limit) {
+            int key = byteArray[payloadStart + i] & 0xFF;
+            i += 1;
+
+            if (i + 2 > limit) {
+                error = "子包格式错误：无法提取 subLen";
+                return strict || status == DecodeStatus.OK ? DecodeStatus.BAD_SUB_PACK : status;
+            }
+            int subLen = TLVDecoder.readIntLittleEndian(byteArray, payloadStart + i, 2);
+            i += 2;
+
+            if (subLen < 0 || i + subLen > limit) {
+                error = "子包格式错误：subPayload 超出范围";
+                if (strict) {
+                    return DecodeStatus.BAD_SUB_PACK;
+                }
+                if (i < limit) {
+                    add(key, payloadStart + i, limit - i);
+                    truncated = true;
+                }
+                return status == DecodeStatus.OK ? DecodeStatus.BAD_SUB_PACK : status;
+            }
+            if (key == 0x38 && (subLen < 1 || subLen > 8)) {
+                error = "子包格式错误：产品id 长度应为 1~8 字节，实际为 " + subLen;
+                return DecodeStatus.BAD_PAYLOAD;
+            }
+            add(key, payloadStart + i, subLen);
+            i += subLen;
+
+            if (key == 0x38) {
+                productId = TLVDecoder.readIntLittleEndian(byteArray, payloadStart + i - subLen, subLen);
+            }
+        }
+        return status;
+    }
+
+    private void add(int key, int offset, int len) {
+        if (count * 3 == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        int e = count * 3;
+        entries[e] = key;
+        entries[e + 1] = offset;
+        entries[e + 2] = len;
+        count++;
+        if (index[key] == 0) {
+            index[key] = (short) count;
+        }
+    }
+
+    // 只清理上一帧用到的 key
+    private void clear() {
+        for (int i = 0; i < count; i++) {
+            index[entries[i * 3]] = 0;
+        }
+        count = 0;
+        productId = 0;
+        truncated = false;
+        buffer = null;
+    }
+
+    // 方法：查找第一个 key 子包的序号，不存在时返回 -1
+    public int find(int key) {
+        return index[key & 0xFF] - 1;
+    }
+
+    public boolean has(int key) {
+        return index[key & 0xFF] != 0;
+    }
+
+    // 子包个数，序号 0 ~ size()-1 按帧内顺序
+    public int size() {
+        return count;
+    }
+
+    public int key(int i) {
+        return entries[i * 3];
+    }
+
+    // 子包内容在 buffer() 中的起始位置
+    public int offset(int i) {
+        return entries[i * 3 + 1];
+    }
+
+    public int length(int i) {
+        return entries[i * 3 + 2];
+    }
+
+    // 子包所在数组，转义包为当前线程的转义缓冲区（resetInPlace 时为原数组），加密数据为当前线程的解密缓冲区
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    // tryReset 时最后一个子包超出 payload，已截断到 payload 末尾
+    public boolean truncated() {
+        return truncated;
+    }
+
+    // 命令字节，tryReset 在帧头不完整时为 -1
+    public int cmd() {
+        return cmd;
+    }
+
+    // payload 长度
+    public int length() {
+        return length;
+    }
+
+    public int productId() {
+        return productId;
+    }
+
+    // 帧中没有 0x38 时由调用方补充产品id
+    public void productId(int productId) {
+        this.productId = productId;
+    }
+
+    // 方法：转换为 TlvSubPackList，SubPack 指向同一数组；tryReset 帧头不完整时返回 null
+    public TLVDecoder.TlvSubPackList toSubPackList() {
+        if (cmd < 0) {
+            return null;
+        }
+        List<TLVDecoder.SubPack> subPackList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            subPackList.add(new TLVDecoder.SubPack(key(i), length(i), buffer, offset(i)));
+        }
+        return new TLVDecoder.TlvSubPackList(TLVDecoder.HEX_KEYS[cmd], length, productId, subPackList);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{cmd=")
+                .append(cmd < 0 ? "null" : "'" + TLVDecoder.HEX_KEYS[cmd] + "'")
+                .append(", length=").append(length)
+                .append(", productId=").append(productId)
+                .append(", subPackList=[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append("{key='").append(TLVDecoder.HEX_KEYS[key(i)])
+                    .append("', len=").append(length(i))
+                    .append(", payload=").append(TLVDecoder.bytesToHex(buffer, offset(i), length(i)))
+                    .append('}');
+        }
+        return sb.append("]}").toString();
+    }
+}
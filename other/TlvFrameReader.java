@@ -0,0 +1,197 @@
+package other;
+
+// FIXME rename package
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+// 类：TlvFrameReader，流式拆帧
+// TCP / 串口网关上数据可能被拆成多段，也可能一次读到多帧，这里按 0x43 0x47 帧头和 3~4 字节的长度切出完整帧，
+// 校验末尾两字节的字节和 crc 后通过回调交给调用方。
+// 每个连接持有一个 TlvFrameReader，内部缓冲区只在帧比当前容量大时扩容，平时不随消息分配内存。
+// 非线程安全，同一个连接的数据应在同一线程中喂入。
+public class TlvFrameReader {
+
+    // 回调：buf[offset, offset+len) 为一帧完整数据（含帧头和 crc），只在回调期间有效
+    public interface FrameHandler {
+        void onFrame(byte[] buf, int offset, int len);
+    }
+
+    private static final int HEADER_LEN = 5;
+    private static final int CRC_LEN = 2;
+    private static final int MAX_FRAME_LEN = HEADER_LEN + 0xFFFF + CRC_LEN;
+
+    private final FrameHandler handler;
+
+    // 有效数据为 buffer[head, tail)
+    private byte[] buffer;
+    private ByteBuffer bufferView;
+    private int head;
+    private int tail;
+
+    private long frameCount;
+    private long crcErrorCount;
+    private long skippedBytes;
+
+    public TlvFrameReader(FrameHandler handler) {
+        this(handler, 1024);
+    }
+
+    public TlvFrameReader(FrameHandler handler, int initialCapacity) {
+        this.handler = handler;
+        this.buffer = new byte[Math.max(initialCapacity, HEADER_LEN + CRC_LEN)];
+        this.bufferView = ByteBuffer.wrap(buffer);
+    }
+
+    // 方法：喂入一段任意长度的数据
+    public void feed(byte[] chunk, int offset, int len) {
+        while (len > 0) {
+            ensureWritable(1);
+            int n = Math.min(len, buffer.length - tail);
+            System.arraycopy(chunk, offset, buffer, tail, n);
+            tail += n;
+            offset += n;
+            len -= n;
+            drain();
+        }
+    }
+
+    public void feed(byte[] chunk) {
+        feed(chunk, 0, chunk.length);
+    }
+
+    // 方法：从 channel 读取一次，直接读入内部缓冲区，返回读取的字节数，-1 表示 EOF
+    public int read(ReadableByteChannel channel) throws IOException {
+        ensureWritable(1);
+        bufferView.limit(buffer.length).position(tail);
+        int n = channel.read(bufferView);
+        if (n > 0) {
+            tail += n;
+            drain();
+        }
+        return n;
+    }
+
+    // 方法：从输入流读取一次，直接读入内部缓冲区，返回读取的字节数，-1 表示 EOF
+    public int read(InputStream in) throws IOException {
+        ensureWritable(1);
+        int n = in.read(buffer, tail, buffer.length - tail);
+        if (n > 0) {
+            tail += n;
+            drain();
+        }
+        return n;
+    }
+
+    // 已缓存但尚未组成完整帧的字节数
+    public int buffered() {
+        return tail - head;
+    }
+
+    public long frameCount() {
+        return frameCount;
+    }
+
+    public long crcErrorCount() {
+        return crcErrorCount;
+    }
+
+    // 为重新同步帧头而丢弃的字节数
+    public long skippedBytes() {
+        return skippedBytes;
+    }
+
+    public void reset() {
+        head = 0;
+        tail = 0;
+    }
+
+    private void drain() {
+        while (tail - head >= 2) {
+            if (buffer[head] != (byte) 0x43 || buffer[head + 1] != (byte) 0x47) {
+                // 帧头不对，逐字节向后查找下一个 0x43 0x47
+                head++;
+                skippedBytes++;
+                continue;
+            }
+
+            if (tail - head < HEADER_LEN) {
+                break;
+            }
+
+            int length = TLVDecoder.readUIntLittleEndian(buffer, head + 3, 2);
+            int frameLen = HEADER_LEN + length + CRC_LEN;
+            if (tail - head < frameLen) {
+                ensureCapacity(frameLen);
+                break;
+            }
+
+            int crc = TLVDecoder.readUIntLittleEndian(buffer, head + HEADER_LEN + length, CRC_LEN);
+            if (TLVEncoder.byteSumU16(buffer, head, HEADER_LEN + length) != crc) {
+                // crc 不对，可能是误命中的帧头，跳过一个字节继续同步
+                crcErrorCount++;
+                DecodeListener listener = TLVDecoder.getDecodeListener();
+                if (listener != null) {
+                    listener.onError(DecodeStatus.BAD_CRC, buffer[head + 2] & 0xFF);
+                }
+                head++;
+                skippedBytes++;
+                continue;
+            }
+
+            frameCount++;
+            handler.onFrame(buffer, head, frameLen);
+            head += frameLen;
+        }
+
+        if (head == tail) {
+            head = 0;
+            tail = 0;
+        }
+    }
+
+    // 保证 tail 之后至少还有 n 个字节可写
+    private void ensureWritable(int n) {
+        if (buffer.length - tail >= n) {
+            return;
+        }
+        compact();
+        if (buffer.length - tail < n) {
+            grow(tail + n);
+        }
+    }
+
+    // 保证缓冲区能放下一整帧
+    private void ensureCapacity(int frameLen) {
+        if (buffer.length >= frameLen) {
+            return;
+        }
+        compact();
+        grow(Math.min(frameLen, MAX_FRAME_LEN));
+    }
+
+    // 把未处理的数据移到缓冲区开头
+    private void compact() {
+        if (head == 0) {
+            return;
+        }
+        System.arraycopy(buffer, head, buffer, 0, tail - head);
+        tail -= head;
+        head = 0;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = buffer.length;
+        while (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        byte[] newBuffer = new byte[capacity];
+        System.arraycopy(buffer, head, newBuffer, 0, tail - head);
+        tail -= head;
+        head = 0;
+        buffer = newBuffer;
+        bufferView = ByteBuffer.wrap(buffer);
+    }
+}
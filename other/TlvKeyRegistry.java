@@ -0,0 +1,425 @@
+package other;
+
+// FIXME rename package
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 类：TlvKeyRegistry，子包 key 注册表
+// 与 Go 版 tlvDecodeData 的 key 表对应，每个 key 登记 (名称, 分类, 解码器)，按 key 字节查 256 项数组。
+// view() 返回的 Message 只记录子包位置，consumer 调用 decode(key) 时才解析对应子包，
+// 例如只关心配置应答时不会解析传感器数据，反之亦然。
+public class TlvKeyRegistry {
+
+    // 分类，用于按类型路由
+    public enum Category {
+        SENSOR,  // 实时 / 历史数据
+        CONFIG,  // 上报频率、偏移、校准等配置
+        ALERT,   // 报警配置 或者报警事件
+        DEVICE,  // 版本号、产品id、SN 等设备信息
+        CONTROL, // 断开标志、应答标志等
+        OTHER
+    }
+
+    // 解码器：frame 为所在数据帧（提供 cmd、productId），子包内容为 subPack.payload[offset, offset+len)
+    public interface KeyDecoder {
+        Object decode(TLVDecoder.TlvSubPackList frame, TLVDecoder.SubPack subPack);
+    }
+
+    // 类：KeyDef，一个 key 的定义
+    public static class KeyDef {
+        public final int key;
+        public final String name;
+        public final Category category;
+        public final KeyDecoder decoder;
+
+        public KeyDef(int key, String name, Category category, KeyDecoder decoder) {
+            this.key = key;
+            this.name = name;
+            this.category = category;
+            this.decoder = decoder;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("0x%02x", key) + "-" + name;
+        }
+    }
+
+    // 类：AlertSetting，报警配置 或者报警事件
+    public static class AlertSetting {
+        public String metric;
+        public String operator;
+        public float value;
+        public int workTime;
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "metric='" + metric + '\'' +
+                    ", operator='" + operator + '\'' +
+                    ", value=" + value +
+                    ", workTime=" + workTime +
+                    '}';
+        }
+    }
+
+    // 类：DataLevel，读数分级标准
+    public static class DataLevel {
+        public String metric;
+        public float[] value;
+
+        @Override
+        public String toString() {
+            return "{" +
+                    "metric='" + metric + '\'' +
+                    ", value=" + Arrays.toString(value) +
+                    '}';
+        }
+    }
+
+    // 未注册的 key，与 Go 一致输出十六进制
+    private static final KeyDef UNKNOWN = new KeyDef(-1, "other", Category.OTHER, TlvKeyRegistry::hex);
+
+    // 下标为 key 字节
+    private static final AtomicReferenceArray<KeyDef> KEYS = new AtomicReferenceArray<>(256);
+
+    static {
+        register(0x01, "deviceId", Category.DEVICE, TlvKeyRegistry::hex);
+        register(0x02, "sn", Category.DEVICE, TlvKeyRegistry::hex);
+        // 记录格式按产品id区分（Robb / FrogS / 阀门 / 温湿度），见 HistoryCursor.historyRecordSize
+        register(0x03, "history", Category.SENSOR, (f, s) -> TLVDecoder.decodeHistoryData(s.payload, s.offset, s.len, f.productId));
+        register(0x04, "reportInterval", Category.CONFIG, (f, s) -> u16(s, 0) * 60);
+        register(0x05, "collectInterval", Category.CONFIG, (f, s) -> u16(s, 0));
+        register(0x06, "bleInterval", Category.CONFIG, (f, s) -> u16(s, 0));
+        register(0x11, "firmware", Category.DEVICE, TlvKeyRegistry::string);
+        register(0x12, "firmwareUrl", Category.CONFIG, TlvKeyRegistry::string);
+        register(0x14, "realtime", Category.SENSOR, (f, s) -> TLVDecoder.decodeRealTimeData(s.payload, s.offset, s.len, f.productId));
+        register(0x15, "timestamp", Category.CONTROL, (f, s) -> uint32(s, 0));
+        register(0x16, "sim", Category.DEVICE, TlvKeyRegistry::string);
+        register(0x19, "temperatureUnit", Category.CONFIG, TlvKeyRegistry::hex);
+        register(0x1A, "hardware", Category.DEVICE, TlvKeyRegistry::string);
+        register(0x1B, "alertDuration", Category.CONFIG, (f, s) -> u16(s, 0));
+        register(0x1D, "endFlag", Category.CONTROL, (f, s) -> TLVDecoder.readUIntLittleEndian(s.payload, s.offset, Math.min(s.len, 4)));
+        register(0x20, "wifi", Category.CONFIG, (f, s) -> string(f, s).replace("\"", ""));
+        register(0x21, "debug", Category.CONTROL, TlvKeyRegistry::hex);
+        register(0x25, "mqtt", Category.CONFIG, TlvKeyRegistry::string);
+        register(0x28, "cert", Category.CONFIG, TlvKeyRegistry::hex);
+        register(0x2C, "usbPlugin", Category.DEVICE, (f, s) -> TLVDecoder.readUIntLittleEndian(s.payload, s.offset, Math.min(s.len, 4)));
+        // 温湿度偏移量 {温度, 湿度}
+        register(0x2F, "readingOffset", Category.CONFIG, (f, s) -> new double[]{s16(s, 0) / 10.0, s16(s, 2) / 10.0});
+        register(0x30, "probReadingOffset", Category.CONFIG, TlvKeyRegistry::hex);
+        register(0x31, "pressureOffset", Category.CONFIG, TlvKeyRegistry::hex);
+        register(0x32, "probSensor", Category.CONFIG, TlvKeyRegistry::hex);
+        // 8 字节记录的历史数据（带外接温湿度）
+        register(0x33, "history8", Category.SENSOR, (f, s) -> TLVDecoder.decodeHistoryData8(s.payload, s.offset, s.len));
+        register(0x34, "moduleVersion", Category.DEVICE, TlvKeyRegistry::string);
+        register(0x35, "mcuVersion", Category.DEVICE, TlvKeyRegistry::string);
+        register(0x38, "productId", Category.DEVICE, (f, s) -> u16(s, 0));
+        register(0x3B, "co2Interval", Category.CONFIG, (f, s) -> u16(s, 0) * 60);
+        register(0x3D, "shutdownTime", Category.CONFIG, (f, s) -> u16(s, 0) * 60);
+        register(0x3F, "co2OffsetPercent", Category.CONFIG, (f, s) -> s16(s, 0) / 10.0);
+        register(0x40, "co2AscOpen", Category.CONFIG, (f, s) -> byteAt(s, 0) > 0);
+        register(0x41, "co2Reset", Category.CONFIG, (f, s) -> Boolean.TRUE);
+        register(0x42, "tmpData", Category.CONFIG, (f, s) -> u16(s, 0));
+        register(0x43, "sntpHost", Category.CONFIG, TlvKeyRegistry::string);
+        register(0x44, "sntpOpen", Category.CONFIG, TlvKeyRegistry::hex);
+        register(0x45, "co2Offset", Category.CONFIG, (f, s) -> u16(s, 0));
+        register(0x46, "temperatureOffset", Category.CONFIG, (f, s) -> s16(s, 0) / 10.0);
+        register(0x47, "temperatureOffsetPercent", Category.CONFIG, (f, s) -> u16(s, 0) / 10.0);
+        register(0x48, "humidityOffset", Category.CONFIG, (f, s) -> u16(s, 0) / 10.0);
+        register(0x49, "humidityOffsetPercent", Category.CONFIG, (f, s) -> u16(s, 0) / 10.0);
+        register(0x4A, "co2Status", Category.DEVICE, (f, s) -> byteAt(s, 0));
+        register(0x61, "pmSn", Category.DEVICE, TlvKeyRegistry::string);
+        register(0x63, "lightLevel", Category.CONFIG, (f, s) -> {
+            DataLevel level = new DataLevel();
+            level.metric = "light";
+            level.value = new float[]{byteAt(s, 0)};
+            return level;
+        });
+        register(0x64, "battery", Category.SENSOR, (f, s) -> s8(s, 0));
+        register(0x65, "rssi", Category.SENSOR, (f, s) -> s8(s, 0));
+        register(0x6A, "needAck", Category.CONTROL, (f, s) -> byteAt(s, 0));
+        register(0x85, "historyV2", Category.SENSOR, (f, s) -> TLVDecoder.decodeHistoryDataV2(s.payload, s.offset, s.len));
+
+        // 报警配置 或者报警事件
+        alert(0x07, "temperature", "GT");
+        alert(0x08, "temperature", "LT");
+        alert(0x0A, "humidity", "GT");
+        alert(0x0B, "humidity", "LT");
+        alert(0x0D, "pressure", "GT");
+        alert(0x0E, "pressure", "LT");
+        alert(0x17, "battery", "LT");
+        alert(0x29, "probTemperature", "GT");
+        alert(0x2A, "probTemperature", "LT");
+        alert(0x39, "co2", "GT");
+        alert(0x3A, "co2", "LT");
+        alert(0x57, "tvoc", "GT");
+        alert(0x58, "tvoc", "LT");
+        alert(0x59, "pm25", "GT");
+        alert(0x5A, "pm25", "LT");
+        alert(0x5B, "pm10", "GT");
+        alert(0x5C, "pm10", "LT");
+        alert(0x5D, "noise", "GT");
+        alert(0x5E, "noise", "LT");
+        alert(0x5F, "lumen", "GT");
+        alert(0x60, "lumen", "LT");
+        register(0x68, "frogsAlert-GT", Category.ALERT, TlvKeyRegistry::decodeFrogsAlert);
+        register(0x69, "frogsAlert-LT", Category.ALERT, TlvKeyRegistry::decodeFrogsAlert);
+
+        // 读数分级标准
+        level(0x3C, "co2");
+        level(0x4F, "temperature");
+        level(0x50, "humidity");
+        level(0x51, "pm25");
+        level(0x52, "pm10");
+        level(0x53, "tvoc");
+        level(0x54, "noise");
+        level(0x55, "lumen");
+        level(0x56, "pressure");
+    }
+
+    // 方法：注册（或替换）一个 key 的解码器
+    public static void register(int key, String name, Category category, KeyDecoder decoder) {
+        if (key < 0 || key > 0xFF) {
+            throw new IllegalArgumentException("key must be 0x00~0xFF");
+        }
+        KEYS.set(key, new KeyDef(key, name, category, decoder));
+    }
+
+    // 方法：查找 key 的定义，未注册时返回输出十六进制的默认定义
+    public static KeyDef of(int key) {
+        KeyDef def = KEYS.get(key & 0xFF);
+        return def != null ? def : UNKNOWN;
+    }
+
+    public static boolean isRegistered(int key) {
+        return KEYS.get(key & 0xFF) != null;
+    }
+
+    // 方法：解码单个子包
+    public static Object decode(TLVDecoder.TlvSubPackList frame, TLVDecoder.SubPack subPack) {
+        return of(subPack.keyByte).decoder.decode(frame, subPack);
+    }
+
+    // 方法：在解包结果上创建按需解码的视图
+    public static Message view(TLVDecoder.TlvSubPackList frame) {
+        return new Message(frame);
+    }
+
+    // 方法：同上，在 TlvFrame 索引上创建视图，子包指向 frame.buffer()
+    // 转义或加密的帧在缓冲区中，需在本线程下一次 reset 之前 decode
+    public static Message view(TlvFrame frame) {
+        if (frame.cmd() < 0) {
+            throw new DecodeException(DecodeStatus.SHORT_HEADER, "帧头不完整");
+        }
+        return new Message(frame.toSubPackList());
+    }
+
+    // 类：Message，按需解码的数据帧
+    // 只在第一次 decode(key) 时调用该 key 的解码器，结果缓存在 Message 中
+    public static class Message {
+        private static final Object NOT_DECODED = new Object();
+
+        public final TLVDecoder.TlvSubPackList frame;
+        private final int[] keys;
+        private final Object[] values;
+        private int categoryMask;
+
+        Message(TLVDecoder.TlvSubPackList frame) {
+            this.frame = frame;
+            List<TLVDecoder.SubPack> subPackList = frame.subPackList;
+            keys = new int[subPackList.size()];
+            values = new Object[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = subPackList.get(i).keyByte;
+                values[i] = NOT_DECODED;
+                categoryMask |= 1 << of(keys[i]).category.ordinal();
+            }
+        }
+
+        public boolean has(int key) {
+            return indexOf(key) >= 0;
+        }
+
+        // 是否含有某类子包，不解码
+        public boolean hasCategory(Category category) {
+            return (categoryMask & (1 << category.ordinal())) != 0;
+        }
+
+        // 方法：解码 key 对应的子包，不存在时返回 null
+        public Object decode(int key) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return null;
+            }
+            if (values[i] == NOT_DECODED) {
+                values[i] = of(key).decoder.decode(frame, frame.subPackList.get(i));
+            }
+            return values[i];
+        }
+
+        private int indexOf(int key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("{cmd='").append(frame.cmd).append('\'');
+            for (int key : keys) {
+                KeyDef def = of(key);
+                String name = def == UNKNOWN ? String.format("0x%02x", key) : def.name;
+                sb.append(", ").append(name).append('=').append(decode(key));
+            }
+            return sb.append('}').toString();
+        }
+    }
+
+    private static void alert(int key, String metric, String operator) {
+        register(key, metric + "-" + operator, Category.ALERT, (f, s) -> decodeAlert(s, metric, operator));
+    }
+
+    private static void level(int key, String metric) {
+        register(key, metric + "-level", Category.CONFIG, (f, s) -> {
+            DataLevel level = new DataLevel();
+            level.metric = metric;
+            level.value = new float[]{sensorValue(metric, u16(s, 0), false), sensorValue(metric, u16(s, 2), false)};
+            return level;
+        });
+    }
+
+    // 报警阈值的位置由子包长度决定，未知长度返回 null
+    private static AlertSetting decodeAlert(TLVDecoder.SubPack s, String metric, String operator) {
+        AlertSetting setting = new AlertSetting();
+        setting.metric = metric;
+        setting.operator = operator;
+
+        int threshold;
+        switch (s.len) {
+            case 11:
+                threshold = 9;
+                break;
+            case 13:
+                threshold = 9;
+                setting.workTime = u16(s, 11);
+                break;
+            case 12:
+                threshold = 10;
+                break;
+            case 24:
+                threshold = 22;
+                break;
+            case 26:
+                threshold = 24;
+                break;
+            default:
+                return null;
+        }
+
+        setting.value = sensorValue(metric, u16(s, threshold), true);
+        return setting;
+    }
+
+    // frogs 报警：0x34 上报时为报警事件（payload[17:]），否则为 18 字节的报警配置
+    private static AlertSetting decodeFrogsAlert(TLVDecoder.TlvSubPackList f, TLVDecoder.SubPack s) {
+        int base;
+        if ("34".equals(f.cmd)) {
+            base = 17;
+        } else if (s.len == 18) {
+            base = 1;
+        } else {
+            return null;
+        }
+
+        int probSensor = byteAt(s, base);
+        String metric;
+        switch (byteAt(s, base + 1)) {
+            case 0x01:
+                metric = probSensor == 1 ? "prob_temperature" : "temperature";
+                break;
+            case 0x02:
+                metric = probSensor == 1 ? "prob_humidity" : "humidity";
+                break;
+            case 0x0B:
+                metric = probSensor == 1 ? "co2_percent" : null;
+                break;
+            case 0x14:
+                metric = "battery";
+                break;
+            default:
+                return null;
+        }
+
+        AlertSetting setting = new AlertSetting();
+        setting.metric = metric;
+        setting.operator = s.keyByte == 0x69 ? "LT" : "GT";
+        int valueAt = base == 17 ? base + 2 : 12;
+        need(s, valueAt + 4);
+        setting.value = TLVDecoder.readIntLittleEndian(s.payload, s.offset + valueAt, 4) / 10.0f;
+        return setting;
+    }
+
+    private static float sensorValue(String metric, int raw, boolean temperatureOffset) {
+        float val = raw;
+        switch (metric) {
+            case "temperature":
+            case "probTemperature":
+                if (temperatureOffset) {
+                    val -= 500.0f;
+                }
+                return val / 10.0f;
+            case "humidity":
+                return val / 10.0f;
+            case "pressure":
+                return val / 100.0f;
+            default:
+                return val;
+        }
+    }
+
+    private static void need(TLVDecoder.SubPack s, int len) {
+        if (s.len < len) {
+            throw new DecodeException(DecodeStatus.BAD_PAYLOAD, "子包长度不足：key=" + s.key);
+        }
+    }
+
+    private static int byteAt(TLVDecoder.SubPack s, int index) {
+        need(s, index + 1);
+        return s.payload[s.offset + index] & 0xFF;
+    }
+
+    private static int s8(TLVDecoder.SubPack s, int index) {
+        need(s, index + 1);
+        return s.payload[s.offset + index];
+    }
+
+    private static int u16(TLVDecoder.SubPack s, int index) {
+        need(s, index + 2);
+        return TLVDecoder.readUIntLittleEndian(s.payload, s.offset + index, 2);
+    }
+
+    private static int s16(TLVDecoder.SubPack s, int index) {
+        need(s, index + 2);
+        return TLVDecoder.readIntLittleEndian(s.payload, s.offset + index, 2);
+    }
+
+    private static long uint32(TLVDecoder.SubPack s, int index) {
+        need(s, index + 4);
+        return TLVDecoder.readUIntLittleEndian(s.payload, s.offset + index, 4) & 0xFFFFFFFFL;
+    }
+
+    private static String string(TLVDecoder.TlvSubPackList f, TLVDecoder.SubPack s) {
+        return new String(s.payload, s.offset, s.len, StandardCharsets.UTF_8);
+    }
+
+    private static String hex(TLVDecoder.TlvSubPackList f, TLVDecoder.SubPack s) {
+        return TLVDecoder.bytesToHex(s.payload, s.offset, s.len);
+    }
+}
@@ -0,0 +1,128 @@
+package other;
+
+// FIXME rename package
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 类：V2Layout，v2 (0x85) 记录的字段布局
+// 记录第 5 个字节 (byteArray[4]) 为类型，按类型查表得到每个字段的 (字段, 偏移, 字节数, 缩放, 有无符号)，
+// HistoryCursor 用同一个循环解析所有类型。新设备类型可在运行时通过 register 注册，不需要改解析代码。
+public class V2Layout {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    // 下标为类型字节
+    private static final AtomicReferenceArray<V2Layout> LAYOUTS = new AtomicReferenceArray<>(256);
+
+    // 未注册的类型只解析温度
+    private static final V2Layout DEFAULT_LAYOUT = new V2Layout()
+            .field(HistoryCursor.TEMPERATURE, 5, 2, 10.0);
+
+    static {
+        register(1, new V2Layout()
+                .field(HistoryCursor.TEMPERATURE, 5, 2, 10.0)
+                .field(HistoryCursor.HUMIDITY, 7, 2, 10.0));
+        register(2, new V2Layout()
+                .field(HistoryCursor.TEMPERATURE, 5, 2, 10.0));
+        register(3, new V2Layout()
+                .field(HistoryCursor.TEMPERATURE, 5, 2, 10.0)
+                .field(HistoryCursor.HUMIDITY, 7, 2, 10.0)
+                .field(HistoryCursor.PRESSURE, 9, 2, 100.0));
+        register(4, new V2Layout()
+                .field(HistoryCursor.TEMPERATURE, 5, 2, 10.0)
+                .field(HistoryCursor.HUMIDITY, 7, 2, 10.0)
+                .field(HistoryCursor.CO2, 9, 2, 1));
+        register(6, new V2Layout()
+                .field(HistoryCursor.TEMPERATURE, 5, 2, 10.0)
+                .field(HistoryCursor.HUMIDITY, 7, 2, 10.0)
+                .field(HistoryCursor.PROB_TEMPERATURE, 9, 2, 10.0));
+        register(7, new V2Layout()
+                .field(HistoryCursor.TEMPERATURE, 5, 2, 10.0)
+                .field(HistoryCursor.HUMIDITY, 7, 2, 10.0)
+                .field(HistoryCursor.PROB_TEMPERATURE, 9, 2, 10.0)
+                .field(HistoryCursor.PROB_HUMIDITY, 11, 2, 10.0));
+        register(8, new V2Layout()
+                .field(HistoryCursor.TEMPERATURE, 5, 2, 10.0)
+                .field(HistoryCursor.HUMIDITY, 7, 2, 10.0)
+                .field(HistoryCursor.PROB_TEMPERATURE, 9, 2, 10.0)
+                .field(HistoryCursor.PROB_HUMIDITY, 11, 2, 10.0)
+                .field(HistoryCursor.CO2_PERCENT, 13, 2, 10.0));
+        register(9, new V2Layout()
+                .field(HistoryCursor.TEMPERATURE, 5, 2, 10.0)
+                .field(HistoryCursor.HUMIDITY, 7, 2, 10.0)
+                .field(HistoryCursor.CO2_PERCENT, 9, 2, 10.0));
+        register(10, new V2Layout()
+                .field(HistoryCursor.TEMPERATURE, 5, 2, 10.0)
+                .field(HistoryCursor.HUMIDITY, 7, 2, 10.0)
+                .field(HistoryCursor.CO2, 9, 2, 1)
+                .field(HistoryCursor.PM25, 11, 2, 1)
+                .field(HistoryCursor.PM10, 13, 2, 1)
+                .field(HistoryCursor.TVOC, 15, 2, 1)
+                .field(HistoryCursor.NOISE, 17, 2, 1)
+                .field(HistoryCursor.LIGHT, 19, 4, 1));
+        register(0x13, new V2Layout()
+                .field(HistoryCursor.TEMPERATURE, 5, 2, 10.0)
+                .field(HistoryCursor.HUMIDITY, 7, 2, 10.0)
+                .field(HistoryCursor.CO2, 9, 2, 1)
+                .field(HistoryCursor.PM25, 13, 2, 1)
+                .field(HistoryCursor.PM10, 17, 2, 1)
+                .field(HistoryCursor.TVOC, 19, 2, 1)
+                .field(HistoryCursor.NOISE, 21, 2, 1)
+                .field(HistoryCursor.LIGHT, 23, 4, 1));
+    }
+
+    // 各字段按列存放，解析时顺序访问
+    int size;
+    int present;
+    int[] fields = new int[INITIAL_CAPACITY];
+    int[] offsets = new int[INITIAL_CAPACITY];
+    int[] widths = new int[INITIAL_CAPACITY];
+    double[] scales = new double[INITIAL_CAPACITY];
+    boolean[] signed = new boolean[INITIAL_CAPACITY];
+
+    // 方法：追加一个有符号字段，值 = 原始值 / scale
+    // field 为 HistoryCursor 中的字段标志，offset 相对记录起始位置（含 4 字节时间戳和 1 字节类型）
+    public V2Layout field(int field, int offset, int width, double scale) {
+        return field(field, offset, width, scale, true);
+    }
+
+    public V2Layout field(int field, int offset, int width, double scale, boolean isSigned) {
+        if (width < 1 || width > 4) {
+            throw new IllegalArgumentException("width must be 1~4");
+        }
+        if (Integer.bitCount(field) != 1) {
+            throw new IllegalArgumentException("field must be a single HistoryCursor flag");
+        }
+        if (size == fields.length) {
+            int capacity = size * 2;
+            fields = Arrays.copyOf(fields, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            widths = Arrays.copyOf(widths, capacity);
+            scales = Arrays.copyOf(scales, capacity);
+            signed = Arrays.copyOf(signed, capacity);
+        }
+        fields[size] = field;
+        offsets[size] = offset;
+        widths[size] = width;
+        scales[size] = scale;
+        signed[size] = isSigned;
+        present |= field;
+        size++;
+        return this;
+    }
+
+    // 方法：注册（或替换）某个类型的布局，注册后不要再修改该布局
+    public static void register(int type, V2Layout layout) {
+        if (type < 0 || type > 0xFF) {
+            throw new IllegalArgumentException("type must be 0x00~0xFF");
+        }
+        LAYOUTS.set(type, layout);
+    }
+
+    // 方法：查找类型对应的布局，未注册时返回只含温度的默认布局
+    public static V2Layout of(int type) {
+        V2Layout layout = LAYOUTS.get(type & 0xFF);
+        return layout != null ? layout : DEFAULT_LAYOUT;
+    }
+}
@@ -0,0 +1,66 @@
+package other.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import other.BleDecoder;
+import other.TLVDecoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 类：BleDecoderBenchmark，BLE 扫描批次解析基准
+// 一批 1024 条广播，devices 个设备轮流广播；每轮内容不同时全部需要解析，内容相同时全部为重复广播
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BleDecoderBenchmark {
+
+    private static final String ADVERTISEMENT = "0201061416CDFD884FCB3E85342D58010410010B02020164";
+    private static final int BATCH_SIZE = 1024;
+    private static final int DEVICES = 256;
+
+    private final List<byte[]> repeated = new ArrayList<>();
+    private final List<byte[]> changing = new ArrayList<>();
+    private final List<BleDecoder.BleData> out = new ArrayList<>();
+    private final BleDecoder decoder = new BleDecoder();
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            byte[] record = TLVDecoder.hexStringToByteArray(ADVERTISEMENT);
+            // MAC 最低字节区分设备
+            record[10] = (byte) (i % DEVICES);
+            repeated.add(record);
+
+            byte[] changed = record.clone();
+            // 温度随轮次变化
+            changed[16] = (byte) (i / DEVICES);
+            changing.add(changed);
+        }
+        decoder.decodeBatch(repeated, out);
+    }
+
+    @Benchmark
+    public int duplicates() {
+        out.clear();
+        return decoder.decodeBatch(repeated, out);
+    }
+
+    @Benchmark
+    public int changing() {
+        out.clear();
+        return decoder.decodeBatch(changing, out);
+    }
+}
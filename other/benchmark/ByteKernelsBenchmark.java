@@ -0,0 +1,74 @@
+package other.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import other.ByteKernels;
+import other.vector.VectorByteKernels;
+
+import java.util.concurrent.TimeUnit;
+
+// 类：ByteKernelsBenchmark，校验和与字节替换的标量实现和 Vector API 实现对比
+// 需要 --add-modules jdk.incubator.vector，已在 @Fork 中加上
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class ByteKernelsBenchmark {
+
+    // v2：v2 协议帧 (121 字节)；escaped：字节替换帧 (90 字节)；history：100 条温湿度历史数据 (616 字节)
+    @Param({"v2", "escaped", "history"})
+    public String frameType;
+
+    private byte[] frame;
+    private byte[] scratch;
+
+    @Setup
+    public void setup() {
+        switch (frameType) {
+            case "v2":
+                frame = SampleFrames.v2Frame();
+                break;
+            case "escaped":
+                frame = SampleFrames.escapedFrame();
+                break;
+            default:
+                frame = SampleFrames.historyFrame(100);
+                break;
+        }
+        scratch = frame.clone();
+    }
+
+    @Benchmark
+    public int byteSumScalar() {
+        return ByteKernels.byteSumScalar(frame, 0, frame.length - 2);
+    }
+
+    @Benchmark
+    public int byteSumVector() {
+        return VectorByteKernels.byteSum(frame, 0, frame.length - 2);
+    }
+
+    // 就地替换，第一次调用后不再有命中的字节，但两种实现每次的工作量不变
+    @Benchmark
+    public int substituteScalar() {
+        return ByteKernels.substituteScalar(scratch, 0, scratch.length, 0,
+                0x43, 0x03, -1, (byte) 0x1A, (byte) 0x1B, (byte) 0x08);
+    }
+
+    @Benchmark
+    public int substituteVector() {
+        return VectorByteKernels.substitute(scratch, 0, scratch.length, 0,
+                0x43, 0x03, -1, (byte) 0x1A, (byte) 0x1B, (byte) 0x08);
+    }
+}
@@ -0,0 +1,55 @@
+package other.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import other.HistoryColumns;
+import other.LoraDecoder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// 类：LoraDecoderBenchmark，LoRa 历史数据解析基准
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LoraDecoderBenchmark {
+
+    private byte[] frame;
+    private ByteBuffer directBuffer;
+    private final HistoryColumns columns = new HistoryColumns();
+
+    @Setup
+    public void setup() {
+        frame = SampleFrames.loraRobbHistoryFrame(12);
+        directBuffer = ByteBuffer.allocateDirect(frame.length);
+        directBuffer.put(frame).flip();
+    }
+
+    @Benchmark
+    public LoraDecoder.LoraMessage historyList() {
+        return LoraDecoder.decode(LoraDecoder.Model.ROBB, frame);
+    }
+
+    // 按列输出，复用同一个 HistoryColumns
+    @Benchmark
+    public int historyColumns() {
+        return LoraDecoder.decode(LoraDecoder.Model.ROBB, frame, 0, frame.length, columns.clear()).historySize;
+    }
+
+    // 模拟网络服务器的堆外 buffer
+    @Benchmark
+    public int historyColumnsDirect() {
+        return LoraDecoder.decode(LoraDecoder.Model.ROBB, directBuffer, columns.clear()).historySize;
+    }
+}
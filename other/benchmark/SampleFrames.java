@@ -0,0 +1,120 @@
+package other.benchmark;
+
+import other.LoraDecoder;
+import other.TLVDecoder;
+import other.TLVEncoder;
+
+import java.io.ByteArrayOutputStream;
+
+// 类：SampleFrames，基准测试用的示例数据帧
+public class SampleFrames {
+
+    // v2 协议 (0x85)，与 TLVDecoder.main 中的数据相同
+    public static final String V2_FRAME = "4347417200851f00f463506a13f800560321020500070001f008004100320034000000000000003802003a006108003435353031313735110500312e322e3981020008098902004b018a04004c150000650100b36401006474020021107004001e0000002c0100008b010002710400db0e00001d0100015912";
+
+    // 带 27 03 00 字节替换的实时数据帧 (0x14)
+    public static final String ESCAPED_FRAME = "2703004343034347344D003802002F00110500352E302E36220400303030302C01000067040003000000341000424332363059434E4641523031413034350500352E302E361D010001140C0007D0B069F2102E000064BB00E00D";
+
+    public static byte[] v2Frame() {
+        return TLVDecoder.hexStringToByteArray(V2_FRAME);
+    }
+
+    public static byte[] escapedFrame() {
+        return TLVDecoder.hexStringToByteArray(ESCAPED_FRAME);
+    }
+
+    // 去掉字节替换后的实时数据帧
+    public static byte[] realtimeFrame() {
+        return TLVDecoder.escapePacket(escapedFrame());
+    }
+
+    // 温湿度历史数据帧 (0x03)，records 条 6 字节记录
+    public static byte[] historyFrame(int records) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        int subLen = 6 + records * 6;
+        payload.write(0x03);
+        writeLittleEndian(payload, subLen, 2);
+        writeLittleEndian(payload, 1783653364, 4);
+        writeLittleEndian(payload, 60, 2);
+        for (int i = 0; i < records; i++) {
+            int temperature = 500 + 200 + i % 50;
+            int humidity = 450 + i % 100;
+            writeLittleEndian(payload, (temperature << 12) | humidity, 3);
+            writeLittleEndian(payload, 10132 + i % 7, 2);
+            payload.write(90);
+        }
+        return frame(0x41, payload.toByteArray());
+    }
+
+    // Robb LoRa 历史数据帧 (0x41)，records 条 20 字节大端序记录，payload 长度不超过 255 字节
+    public static byte[] loraRobbHistoryFrame(int records) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.write(0);
+        writeBigEndian(payload, 1783653364, 4);
+        writeBigEndian(payload, 60, 2);
+        for (int i = 0; i < records; i++) {
+            int temperature = 500 + 200 + i % 50;
+            int humidity = 450 + i % 100;
+            writeBigEndian(payload, (temperature << 12) | humidity, 3);
+            writeBigEndian(payload, 0, 2);
+            writeBigEndian(payload, 600 + i, 2);
+            writeBigEndian(payload, 12, 2);
+            writeBigEndian(payload, 15, 2);
+            writeBigEndian(payload, 90, 2);
+            writeBigEndian(payload, 40, 2);
+            writeBigEndian(payload, 300, 4);
+            payload.write(255);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x01);
+        out.write(LoraDecoder.CMD_DATA);
+        out.write(payload.size());
+        out.write(payload.toByteArray(), 0, payload.size());
+        byte[] body = out.toByteArray();
+        // CRC-16/Modbus 低字节在前
+        writeLittleEndian(out, LoraDecoder.crc16(body, 0, body.length), 2);
+        return out.toByteArray();
+    }
+
+    // MQTT 配置下发命令，与 TLVEncoder.main 中的数据相同
+    public static TLVEncoder.Command mqttCommand() {
+        TLVEncoder.Command cmd = new TLVEncoder.Command();
+        cmd.cmd = 0x3a;
+        cmd.endFlag = 1;
+        cmd.mqttSetting = new TLVEncoder.MqttSetting();
+        cmd.mqttSetting.host = "192.168.1.100";
+        cmd.mqttSetting.port = 1883;
+        cmd.mqttSetting.username = "user";
+        cmd.mqttSetting.password = "password";
+        cmd.mqttSetting.clientId = "clientId";
+        cmd.mqttSetting.downTopic = "qingping/mac/down";
+        cmd.mqttSetting.upTopic = "qingping/mac/up";
+        return cmd;
+    }
+
+    private static byte[] frame(int cmd, byte[] payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x43);
+        out.write(0x47);
+        out.write(cmd);
+        writeLittleEndian(out, payload.length, 2);
+        out.write(payload, 0, payload.length);
+        byte[] body = out.toByteArray();
+        writeLittleEndian(out, TLVEncoder.byteSumU16(body), 2);
+        return out.toByteArray();
+    }
+
+    private static void writeLittleEndian(ByteArrayOutputStream out, int val, int length) {
+        for (int i = 0; i < length; i++) {
+            out.write(val & 0xFF);
+            val >>= 8;
+        }
+    }
+
+    private static void writeBigEndian(ByteArrayOutputStream out, int val, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            out.write((val >> (i * 8)) & 0xFF);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package other.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import other.DecodeException;
+import other.DecodeResult;
+import other.HistoryColumns;
+import other.HistoryCursor;
+import other.TLVDecoder;
+import other.TlvFrame;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// 类：TlvDecoderBenchmark，TLVDecoder 热点路径基准
+// 运行：mvn package && java -jar target/benchmarks.jar -prof gc
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TlvDecoderBenchmark {
+
+    @Param({"24", "288"})
+    public int historyRecords;
+
+    private byte[] realtimeFrame;
+    private byte[] historyFrame;
+    private byte[] v2Frame;
+    private byte[] escapedFrame;
+    private byte[] truncatedFrame;
+    private TLVDecoder.SubPack v2Record;
+    private TLVDecoder.TlvSubPackList historySubPacks;
+    private final HistoryCursor cursor = new HistoryCursor();
+    private final TlvFrame frame = new TlvFrame();
+    private final HistoryColumns columns = new HistoryColumns();
+    private final DecodeResult decodeResult = new DecodeResult();
+
+    @Setup
+    public void setup() {
+        realtimeFrame = SampleFrames.realtimeFrame();
+        historyFrame = SampleFrames.historyFrame(historyRecords);
+        v2Frame = SampleFrames.v2Frame();
+        escapedFrame = SampleFrames.escapedFrame();
+        truncatedFrame = Arrays.copyOf(historyFrame, historyFrame.length - 8);
+        v2Record = TLVDecoder.tlvUnpack(v2Frame).subPackList.get(0);
+        historySubPacks = TLVDecoder.tlvUnpack(historyFrame);
+    }
+
+    @Benchmark
+    public TLVDecoder.TlvUnpackResult realtime() {
+        return TLVDecoder.tlvDecode(realtimeFrame);
+    }
+
+    @Benchmark
+    public TLVDecoder.TlvUnpackResult history() {
+        return TLVDecoder.tlvDecode(historyFrame);
+    }
+
+    @Benchmark
+    public TLVDecoder.TlvUnpackResult v2() {
+        return TLVDecoder.tlvDecode(v2Frame);
+    }
+
+    @Benchmark
+    public TLVDecoder.SensorData historyDataV2() {
+        return TLVDecoder.decodeHistoryDataV2(v2Record.payload, v2Record.offset, v2Record.len);
+    }
+
+    // 只建子包索引，不创建 SubPack 和字符串
+    @Benchmark
+    public int frameIndex() {
+        return frame.reset(v2Frame, 0, v2Frame.length).find(0x85);
+    }
+
+    @Benchmark
+    public TLVDecoder.TlvSubPackList unpack() {
+        return TLVDecoder.tlvUnpack(v2Frame);
+    }
+
+    // 转义包拷贝到线程缓冲区后还原，原始数据不变
+    @Benchmark
+    public TLVDecoder.TlvUnpackResult escaped() {
+        return TLVDecoder.tlvDecode(escapedFrame);
+    }
+
+    // 游标遍历历史数据，不创建 SensorData
+    @Benchmark
+    public void historyCursor(Blackhole bh) {
+        HistoryCursor c = cursor.reset(historySubPacks);
+        while (c.next()) {
+            bh.consume(c.timestamp());
+            bh.consume(c.temperature());
+            bh.consume(c.humidity());
+        }
+    }
+
+    // 按列输出，复用同一个 HistoryColumns
+    @Benchmark
+    public int historyColumns() {
+        return TLVDecoder.decodeHistoryColumns(historyFrame, 0, historyFrame.length, columns.clear()).size;
+    }
+
+    // 截断的历史数据帧：tlvDecode 抛异常，tryDecode 返回状态和完整的记录
+    @Benchmark
+    public Object truncatedThrow() {
+        try {
+            return TLVDecoder.tlvDecode(truncatedFrame);
+        } catch (DecodeException e) {
+            return e.status;
+        }
+    }
+
+    @Benchmark
+    public int truncatedTry() {
+        return TLVDecoder.tryDecode(truncatedFrame, 0, truncatedFrame.length, decodeResult).sensorData.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TlvDecoderBenchmark.class.getSimpleName())
+                .include(TlvEncoderBenchmark.class.getSimpleName())
+                .include(LoraDecoderBenchmark.class.getSimpleName())
+                .include(BleDecoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
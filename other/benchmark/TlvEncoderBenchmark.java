@@ -0,0 +1,65 @@
+package other.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import other.TLVEncoder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// 类：TlvEncoderBenchmark，TLVEncoder 下发命令编码基准
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TlvEncoderBenchmark {
+
+    private TLVEncoder.Command mqttCommand;
+    private TLVEncoder.Command intervalCommand;
+    private byte[] frame;
+    private ByteBuffer directBuffer;
+
+    @Setup
+    public void setup() {
+        mqttCommand = SampleFrames.mqttCommand();
+
+        intervalCommand = new TLVEncoder.Command();
+        intervalCommand.reportIntervl = 600;
+        intervalCommand.collectInterval = 60;
+
+        frame = TLVEncoder.tlvEncode(mqttCommand);
+        directBuffer = ByteBuffer.allocateDirect(4096);
+    }
+
+    @Benchmark
+    public byte[] mqttSetting() {
+        return TLVEncoder.tlvEncode(mqttCommand);
+    }
+
+    // 直接写入复用的堆外 buffer
+    @Benchmark
+    public int mqttSettingInto() {
+        directBuffer.clear();
+        return TLVEncoder.encodeInto(mqttCommand, directBuffer);
+    }
+
+    @Benchmark
+    public byte[] interval() {
+        return TLVEncoder.tlvEncode(intervalCommand);
+    }
+
+    @Benchmark
+    public int byteSum() {
+        return TLVEncoder.byteSumU16(frame, 0, frame.length - 2);
+    }
+}
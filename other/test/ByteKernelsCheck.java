@@ -0,0 +1,90 @@
+package other.test;
+
+// FIXME rename package
+
+import other.ByteKernels;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// 类：ByteKernelsCheck，ByteKernels 的校验和与字节替换在随机数据上与逐字节参考实现对比
+// 加载了 Vector API 实现时（编译 other/vector 并加 --add-modules jdk.incubator.vector，见 README）byteSum / substitute 走向量路径，
+// 否则只检查标量实现。覆盖随机长度和起始位置、不足一个向量的尾部、源字节为 -1 或重复、就地替换（write 小于 from）。
+public class ByteKernelsCheck {
+
+    public static void main(String[] args) {
+        Check check = new Check("ByteKernelsCheck");
+        System.out.println("VECTORIZED=" + ByteKernels.VECTORIZED);
+
+        Random random = new Random(20240601);
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        byte[] data = new byte[1024];
+        for (int round = 0; round < rounds; round++) {
+            // 一半数据只取少数几个值，让替换经常命中
+            if (round % 2 == 0) {
+                random.nextBytes(data);
+            } else {
+                for (int i = 0; i < data.length; i++) {
+                    data[i] = (byte) (0x40 + random.nextInt(8));
+                }
+            }
+            int len = random.nextInt(600);
+            int offset = random.nextInt(data.length - len + 1);
+
+            check.equal("byteSum offset=" + offset + " len=" + len,
+                    byteSumReference(data, offset, len), ByteKernels.byteSum(data, offset, len));
+            check.equal("byteSumScalar offset=" + offset + " len=" + len,
+                    byteSumReference(data, offset, len), ByteKernels.byteSumScalar(data, offset, len));
+
+            int s0 = source(random);
+            int s1 = source(random);
+            int s2 = source(random);
+            byte t0 = (byte) random.nextInt(256);
+            byte t1 = (byte) random.nextInt(256);
+            byte t2 = (byte) random.nextInt(256);
+            int write = offset - random.nextInt(Math.min(offset, 8) + 1);
+
+            byte[] expected = data.clone();
+            int expectedEnd = substituteReference(expected, offset, offset + len, write, s0, s1, s2, t0, t1, t2);
+            byte[] actual = data.clone();
+            int actualEnd = ByteKernels.substitute(actual, offset, offset + len, write, s0, s1, s2, t0, t1, t2);
+            byte[] scalar = data.clone();
+            int scalarEnd = ByteKernels.substituteScalar(scalar, offset, offset + len, write, s0, s1, s2, t0, t1, t2);
+
+            String item = String.format("substitute offset=%d len=%d write=%d s=(%d,%d,%d)", offset, len, write, s0, s1, s2);
+            check.equal(item + " end", expectedEnd, actualEnd);
+            check.isTrue(item + " bytes", Arrays.equals(expected, actual));
+            check.equal(item + " scalar end", expectedEnd, scalarEnd);
+            check.isTrue(item + " scalar bytes", Arrays.equals(expected, scalar));
+        }
+        check.finish();
+    }
+
+    // -1 表示不替换，其余取 0x40 附近的值以便命中
+    private static int source(Random random) {
+        int r = random.nextInt(10);
+        return r == 0 ? -1 : r == 1 ? random.nextInt(256) : 0x40 + random.nextInt(8);
+    }
+
+    private static int byteSumReference(byte[] b, int offset, int len) {
+        int sum = 0;
+        for (int i = offset; i < offset + len; i++) {
+            sum += b[i] & 0xFF;
+        }
+        return sum & 0xFFFF;
+    }
+
+    // 逐字节依次比较三个源字节，后一个命中的替换结果为准
+    private static int substituteReference(byte[] b, int from, int to, int write,
+                                           int s0, int s1, int s2, byte t0, byte t1, byte t2) {
+        for (int i = from; i < to; i++) {
+            int x = b[i] & 0xFF;
+            byte y = b[i];
+            if (x == s0) y = t0;
+            if (x == s1) y = t1;
+            if (x == s2) y = t2;
+            b[write++] = y;
+        }
+        return write;
+    }
+}
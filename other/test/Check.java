@@ -0,0 +1,41 @@
+package other.test;
+
+// FIXME rename package
+
+import java.util.Objects;
+
+// 类：Check，other/test 下各检查程序共用的断言计数
+// 仓库的 Java 代码没有测试框架依赖，检查程序都是普通的 main 方法：逐项比较，不一致时打印差异，
+// 最后 finish() 汇总，有失败时以状态码 1 退出，便于在脚本或 CI 中直接运行。
+final class Check {
+
+    private final String name;
+    private int passed;
+    private int failed;
+
+    Check(String name) {
+        this.name = name;
+    }
+
+    void equal(String item, Object expected, Object actual) {
+        if (Objects.equals(expected, actual)) {
+            passed++;
+            return;
+        }
+        failed++;
+        System.out.println("FAIL " + item);
+        System.out.println("  expected: " + expected);
+        System.out.println("  actual:   " + actual);
+    }
+
+    void isTrue(String item, boolean condition) {
+        equal(item, true, condition);
+    }
+
+    void finish() {
+        System.out.printf("%s: %d passed, %d failed%n", name, passed, failed);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package other.test;
+
+// FIXME rename package
+
+import other.HistoryDedup;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// 类：HistoryDedupCheck，HistoryDedup 在随机重传窗口上与按时间戳集合实现的参考模型对比
+// 参考模型按 HistoryDedup 注释中的规则逐条判断：晚于 watermark 的为新记录；早于 watermark 超过 63 个间隔的视为已接收；
+// 其间的记录查已接收时间戳集合；间隔变化或时间格不对齐时不晚于 watermark 的视为已接收，之后重新开始记录。
+// 覆盖重叠、跳跃、远早于 watermark 的补传、间隔变化、超过 64 条的窗口、MAC 与非 MAC 设备号和分段扩容。
+public class HistoryDedupCheck {
+
+    private static final int WINDOW = 64;
+
+    // 参考模型中一个设备的状态
+    private static final class Device {
+        long watermark;
+        int duration;
+        Set<Long> accepted = new HashSet<>();
+    }
+
+    public static void main(String[] args) {
+        Check check = new Check("HistoryDedupCheck");
+        Random random = new Random(7);
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        HistoryDedup dedup = new HistoryDedup(2);
+        Map<String, Device> model = new HashMap<>();
+        String[] ids = new String[300];
+        for (int d = 0; d < ids.length; d++) {
+            ids[d] = d % 3 == 0 ? "device-" + d : String.format("582D34%06X", d);
+        }
+
+        long[] out = new long[4];
+        long accepted = 0;
+        long duplicates = 0;
+        int mismatches = 0;
+        for (int round = 0; round < rounds && mismatches < 10; round++) {
+            String id = ids[random.nextInt(ids.length)];
+            Device device = model.get(id);
+            int duration = random.nextInt(20) == 0 ? 30 + 30 * random.nextInt(3) : 60;
+            int count = 1 + random.nextInt(random.nextInt(10) == 0 ? 250 : 40);
+            int timestamp = start(random, device, duration);
+
+            boolean[] expected = new boolean[count];
+            int expectedAccepted = reference(model, id, timestamp, duration, count, expected);
+            int actualAccepted = dedup.filter(id, timestamp, duration, count, out);
+
+            boolean same = expectedAccepted == actualAccepted;
+            for (int k = 0; k < count; k++) {
+                same &= expected[k] == ((out[k >>> 6] & (1L << k)) != 0);
+            }
+            if (!same) {
+                mismatches++;
+            }
+            check.isTrue(String.format("round %d %s ts=%d duration=%d count=%d accepted %d/%d",
+                    round, id, timestamp, duration, count, actualAccepted, expectedAccepted), same);
+            check.equal("watermark " + id, model.get(id).watermark, dedup.watermark(id));
+            accepted += expectedAccepted;
+            duplicates += count - expectedAccepted;
+        }
+        check.equal("acceptedCount", accepted, dedup.acceptedCount());
+        check.equal("duplicateCount", duplicates, dedup.duplicateCount());
+        check.finish();
+    }
+
+    // 窗口起点：大多与当前 watermark 对齐并有重叠，少数跳到很远、补传很早的数据或错开时间格
+    private static int start(Random random, Device device, int duration) {
+        int base = 1783653360;
+        if (device == null) {
+            return base + 60 * random.nextInt(1000);
+        }
+        long watermark = device.watermark;
+        switch (random.nextInt(10)) {
+            case 0:
+                return (int) (watermark + (long) duration * (100 + random.nextInt(100)));
+            case 1:
+                return (int) (watermark - (long) duration * (WINDOW + random.nextInt(200)));
+            case 2:
+                return (int) (watermark - (long) duration * random.nextInt(40) + 1 + random.nextInt(duration - 1));
+            default:
+                return (int) (watermark - (long) duration * random.nextInt(80) + (long) duration * random.nextInt(3));
+        }
+    }
+
+    // 参考模型：记录第 k 条是否为新记录，返回新记录条数
+    private static int reference(Map<String, Device> model, String id, int timestamp, int duration, int count,
+                                 boolean[] fresh) {
+        long last = timestamp + (long) duration * (count - 1);
+        Device device = model.get(id);
+        if (device == null) {
+            device = new Device();
+            device.watermark = last;
+            device.duration = duration;
+            for (int k = 0; k < count; k++) {
+                device.accepted.add(timestamp + (long) duration * k);
+                fresh[k] = true;
+            }
+            model.put(id, device);
+            return count;
+        }
+
+        boolean aligned = duration == device.duration && Math.floorMod(device.watermark - timestamp, (long) duration) == 0;
+        int n = 0;
+        if (!aligned) {
+            Set<Long> restarted = new HashSet<>();
+            for (int k = 0; k < count; k++) {
+                long t = timestamp + (long) duration * k;
+                if (t > device.watermark) {
+                    restarted.add(t);
+                    fresh[k] = true;
+                    n++;
+                }
+            }
+            if (n > 0) {
+                device.watermark = last;
+                device.duration = duration;
+                device.accepted = restarted;
+            }
+            return n;
+        }
+
+        long oldest = device.watermark - (long) (WINDOW - 1) * duration;
+        for (int k = 0; k < count; k++) {
+            long t = timestamp + (long) duration * k;
+            if (t > device.watermark || (t >= oldest && !device.accepted.contains(t))) {
+                device.accepted.add(t);
+                fresh[k] = true;
+                n++;
+            }
+        }
+        device.watermark = Math.max(device.watermark, last);
+        // 只保留新窗口内的时间戳，窗口外的按规则视为已接收
+        long windowStart = device.watermark - (long) (WINDOW - 1) * duration;
+        device.accepted.removeIf(t -> t < windowStart);
+        return n;
+    }
+}
@@ -0,0 +1,316 @@
+package other.test;
+
+// FIXME rename package
+
+import other.DecodeResult;
+import other.DecodeStatus;
+import other.HistoryColumns;
+import other.HistoryDedup;
+import other.TLVDecoder;
+import other.TLVEncoder;
+import other.TlvDecryptor;
+import other.TlvFrame;
+import other.TlvKeyRegistry;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+// 类：TlvDecoderRegressionCheck，示例数据帧的解析结果与基线版本逐字对比
+// 期望值是改为就地解析、v2 布局表之前的 TLVDecoder / TLVEncoder 对同样输入的 toString 输出：
+// v2 (0x85) 帧、字节替换的实时数据 (0x14) 帧、base64 的阀门历史数据 (0x03) 帧，以及覆盖全部 v2 记录类型的构造帧。
+// Robb / FrogS 的 0x03、0x14 记录和 0x33 记录基线版本不支持，期望值按 Go 版 parseRobbSensorData / parseFrogSensorData 计算。
+// 同时检查 tryDecode 与 tlvDecode 结果一致、解析不修改输入数组，加密帧 tlvUnpack 的结果不随之后的解密改变。
+// 运行：javac -encoding UTF-8 -d out other/*.java other/test/*.java && java -cp out other.test.TlvDecoderRegressionCheck
+public class TlvDecoderRegressionCheck {
+
+    private static final String V2_FRAME = "4347417200851f00f463506a13f800560321020500070001f008004100320034000000000000003802003a006108"
+            + "003435353031313735110500312e322e3981020008098902004b018a04004c150000650100b36401006474020021107004001e0000002c"
+            + "0100008b010002710400db0e00001d0100015912";
+    private static final String ESCAPED_FRAME = "2703004343034347344D003802002F00110500352E302E36220400303030302C01000067040003000000"
+            + "341000424332363059434E4641523031413034350500352E302E361D010001140C0007D0B069F2102E000064BB00E00D";
+    private static final String VALVE_FRAME_BASE64 = "Q0cxIQADFQB4qwlphAPjAuABQ+QC4AFY5ALgAWA4AgBNAB0BAAEFCg==";
+    // 温湿度实时数据 (0x14，不带 crc) 和历史数据 (0x03，crc 由 withCrc 填写)
+    private static final String REALTIME_FRAME = "4347410f00140c00f463506ae8a1280f275ac000";
+    private static final String HISTORY_FRAME = "4347412300" + "031800f463506a3c00" + "e8a1280f275a" + "e9a2290f2759" + "eaa3000000ff"
+            + "6401005a" + "650100c0" + "0000";
+    // Robb 24 字节、FrogS 19 字节的实时数据 (0x14)，信号强度在记录之后，crc 由 withCrc 填写
+    private static final String ROBB_REALTIME_FRAME = "4347412000" + "3802003400" + "141800f463506a"
+            + "f4e12e" + "1027" + "2003" + "0c00" + "1400" + "6400" + "2d00" + "2c01" + "5a" + "c000" + "0000";
+    private static final String FROGS_REALTIME_FRAME = "4347411b00" + "3802003c00" + "141300f463506a"
+            + "f4e12e" + "04" + "e8030000" + "fa00" + "5802" + "50" + "b000" + "0000";
+    // 0x33 8 字节记录的历史数据：第一条带外接温度和湿度，第二条为气压、无外接湿度，crc 由 withCrc 填写
+    private static final String HISTORY8_FRAME = "4347411900" + "331600f463506a3c00"
+            + "f4e12e" + "dff2" + "5a" + "6202" + "f4e12e" + "1027" + "59" + "ffff" + "0000";
+    // Robb (0x34) 20 字节记录、FrogS (0x3C) 13 字节记录的历史数据，0x38 在前，crc 由 withCrc 填写
+    private static final String ROBB_FRAME = "4347412200" + "3802003400" + "031a00f463506a3c00"
+            + "f4e12e" + "1027" + "2003" + "0c00" + "1400" + "6400" + "2d00" + "2c010000" + "5a" + "0000";
+    private static final String FROGS_FRAME = "4347411b00" + "3802003c00" + "031300f463506a3c00"
+            + "f4e12e" + "04" + "e8030000" + "fa00" + "5802" + "50" + "0000";
+
+    // 以下为基线版本的输出
+    private static final String V2_DECODE =
+            "{cmd='41', length=114, sensorData=[{dataType='null', timestamp=1783653364, temperature=24.8, "
+            + "humidity=85.4, probTemperature=null, probHumidity=null, co2Percent=null, pressure=null, co2=545, "
+            + "pm25=7, pm10=8, tvoc=65, noise=50, light=52, battery=100, valveOpen=null, rssi=-77}]}";
+
+    private static final String V2_UNPACK =
+            "{cmd='41', length=114, productId=58, subPackList=[{key='85', len=31, "
+            + "payload=f463506a13f800560321020500070001f00800410032003400000000000000}, {key='38', len=2, "
+            + "payload=3a00}, {key='61', len=8, payload=3435353031313735}, {key='11', len=5, payload=312e322e39}, "
+            + "{key='81', len=2, payload=0809}, {key='89', len=2, payload=4b01}, {key='8a', len=4, "
+            + "payload=4c150000}, {key='65', len=1, payload=b3}, {key='64', len=1, payload=64}, {key='74', len=2, "
+            + "payload=2110}, {key='70', len=4, payload=1e000000}, {key='2c', len=1, payload=00}, {key='8b', "
+            + "len=1, payload=02}, {key='71', len=4, payload=db0e0000}, {key='1d', len=1, payload=01}]}";
+
+    private static final String ESCAPED_DECODE =
+            "{cmd='34', length=77, sensorData=[{dataType='event', timestamp=1773195271, temperature=23.7, "
+            + "humidity=24.2, probTemperature=null, probHumidity=null, co2Percent=null, pressure=null, co2=null, "
+            + "pm25=null, pm10=null, tvoc=null, noise=null, light=null, battery=100, valveOpen=null, rssi=-69}]}";
+
+    private static final String ESCAPED_UNPACK =
+            "{cmd='34', length=77, productId=47, subPackList=[{key='38', len=2, payload=2f00}, {key='11', len=5, "
+            + "payload=352e302e36}, {key='22', len=4, payload=30303030}, {key='2c', len=1, payload=00}, {key='67', "
+            + "len=4, payload=08000000}, {key='34', len=16, payload=424332363059434e4641523031413034}, {key='35', "
+            + "len=5, payload=352e302e36}, {key='1d', len=1, payload=01}, {key='14', len=12, "
+            + "payload=07d0b069f2102e000064bb00}]}";
+
+    private static final String VALVE_DECODE =
+            "{cmd='31', length=33, sensorData=[{dataType='data', timestamp=1762241400, temperature=23.9, "
+            + "humidity=null, probTemperature=null, probHumidity=null, co2Percent=null, pressure=null, co2=null, "
+            + "pm25=null, pm10=null, tvoc=null, noise=null, light=null, battery=67, valveOpen=48.0, rssi=null}, "
+            + "{dataType='data', timestamp=1762242300, temperature=24.0, humidity=null, probTemperature=null, "
+            + "probHumidity=null, co2Percent=null, pressure=null, co2=null, pm25=null, pm10=null, tvoc=null, "
+            + "noise=null, light=null, battery=88, valveOpen=48.0, rssi=null}, {dataType='data', "
+            + "timestamp=1762243200, temperature=24.0, humidity=null, probTemperature=null, probHumidity=null, "
+            + "co2Percent=null, pressure=null, co2=null, pm25=null, pm10=null, tvoc=null, noise=null, light=null, "
+            + "battery=96, valveOpen=48.0, rssi=null}]}";
+
+    private static final String VALVE_UNPACK =
+            "{cmd='31', length=33, productId=77, subPackList=[{key='03', len=21, "
+            + "payload=78ab09698403e302e00143e402e00158e402e00160}, {key='38', len=2, payload=4d00}, {key='1d', "
+            + "len=1, payload=01}]}";
+
+    private static final String REALTIME_DECODE =
+            "{cmd='41', length=15, sensorData=[{dataType='event', timestamp=1783653364, temperature=15.0, "
+            + "humidity=48.8, probTemperature=null, probHumidity=null, co2Percent=null, pressure=99.99, co2=null, "
+            + "pm25=null, pm10=null, tvoc=null, noise=null, light=null, battery=90, valveOpen=null, rssi=-64}]}";
+
+    private static final String HISTORY_DECODE =
+            "{cmd='41', length=35, sensorData=[{dataType='data', timestamp=1783653364, temperature=15.0, "
+            + "humidity=48.8, probTemperature=null, probHumidity=null, co2Percent=null, pressure=99.99, co2=null, "
+            + "pm25=null, pm10=null, tvoc=null, noise=null, light=null, battery=90, valveOpen=null, rssi=-64}, "
+            + "{dataType='data', timestamp=1783653424, temperature=16.6, humidity=74.5, probTemperature=null, "
+            + "probHumidity=null, co2Percent=null, pressure=99.99, co2=null, pm25=null, pm10=null, tvoc=null, "
+            + "noise=null, light=null, battery=90, valveOpen=null, rssi=-64}, {dataType='data', "
+            + "timestamp=1783653484, temperature=-49.0, humidity=100.2, probTemperature=null, probHumidity=null, "
+            + "co2Percent=null, pressure=null, co2=null, pm25=null, pm10=null, tvoc=null, noise=null, light=null, "
+            + "battery=90, valveOpen=null, rssi=-64}]}";
+
+    private static final String V2_LAYOUTS_DECODE =
+            "{cmd='42', length=334, sensorData=[{dataType='null', timestamp=1783653364, temperature=-826.2, "
+            + "humidity=1050.0, probTemperature=null, probHumidity=null, co2Percent=null, pressure=null, co2=null, "
+            + "pm25=null, pm10=null, tvoc=null, noise=null, light=null, battery=71, valveOpen=null, rssi=-100}, "
+            + "{dataType='null', timestamp=1783653364, temperature=-800.5, humidity=null, probTemperature=null, "
+            + "probHumidity=null, co2Percent=null, pressure=null, co2=null, pm25=null, pm10=null, tvoc=null, "
+            + "noise=null, light=null, battery=71, valveOpen=null, rssi=-100}, {dataType='null', "
+            + "timestamp=1783653364, temperature=-774.8, humidity=1101.4, probTemperature=null, probHumidity=null, "
+            + "co2Percent=null, pressure=300.32, co2=null, pm25=null, pm10=null, tvoc=null, noise=null, "
+            + "light=null, battery=71, valveOpen=null, rssi=-100}, {dataType='null', timestamp=1783653364, "
+            + "temperature=-749.1, humidity=1127.1, probTemperature=null, probHumidity=null, co2Percent=null, "
+            + "pressure=null, co2=30289, pm25=null, pm10=null, tvoc=null, noise=null, light=null, battery=71, "
+            + "valveOpen=null, rssi=-100}, {dataType='null', timestamp=1783653364, temperature=-697.7, "
+            + "humidity=1178.5, probTemperature=3080.3, probHumidity=null, co2Percent=null, pressure=null, "
+            + "co2=null, pm25=null, pm10=null, tvoc=null, noise=null, light=null, battery=71, valveOpen=null, "
+            + "rssi=-100}, {dataType='null', timestamp=1783653364, temperature=-672.0, humidity=1204.2, "
+            + "probTemperature=3106.0, probHumidity=-1545.8, co2Percent=null, pressure=null, co2=null, pm25=null, "
+            + "pm10=null, tvoc=null, noise=null, light=null, battery=71, valveOpen=null, rssi=-100}, "
+            + "{dataType='null', timestamp=1783653364, temperature=-646.3, humidity=1229.9, "
+            + "probTemperature=3131.7, probHumidity=-1520.1, co2Percent=381.7, pressure=null, co2=null, pm25=null, "
+            + "pm10=null, tvoc=null, noise=null, light=null, battery=71, valveOpen=null, rssi=-100}, "
+            + "{dataType='null', timestamp=1783653364, temperature=-620.6, humidity=1255.6, probTemperature=null, "
+            + "probHumidity=null, co2Percent=3157.4, pressure=null, co2=null, pm25=null, pm10=null, tvoc=null, "
+            + "noise=null, light=null, battery=71, valveOpen=null, rssi=-100}, {dataType='null', "
+            + "timestamp=1783653364, temperature=-594.9, humidity=1281.3, probTemperature=null, probHumidity=null, "
+            + "co2Percent=null, pressure=null, co2=31831, pm25=-14687, pm10=4331, tvoc=23093, noise=-23425, "
+            + "light=940830409, battery=71, valveOpen=null, rssi=-100}, {dataType='null', timestamp=1783653364, "
+            + "temperature=-363.6, humidity=1512.6, probTemperature=null, probHumidity=null, co2Percent=null, "
+            + "pressure=null, co2=-31392, pm25=6644, pm10=-21112, tvoc=-2094, noise=16668, light=-709850266, "
+            + "battery=71, valveOpen=null, rssi=-100}, {dataType='null', timestamp=1783653364, temperature=-29.5, "
+            + "humidity=null, probTemperature=null, probHumidity=null, co2Percent=null, pressure=null, co2=null, "
+            + "pm25=null, pm10=null, tvoc=null, noise=null, light=null, battery=71, valveOpen=null, rssi=-100}]}";
+
+    private static final String ROBB_REALTIME_DECODE =
+            "{cmd='41', length=32, sensorData=[{dataType='event', timestamp=1783653364, temperature=25.0, "
+            + "humidity=50.0, probTemperature=null, probHumidity=null, co2Percent=null, pressure=100.0, co2=800, "
+            + "pm25=12, pm10=20, tvoc=100, noise=45, light=300, battery=90, valveOpen=null, rssi=-64}]}";
+
+    private static final String FROGS_REALTIME_DECODE =
+            "{cmd='41', length=27, sensorData=[{dataType='event', timestamp=1783653364, temperature=25.0, "
+            + "humidity=50.0, probTemperature=25.0, probHumidity=60.0, co2Percent=100.0, pressure=null, co2=null, "
+            + "pm25=null, pm10=null, tvoc=null, noise=null, light=null, battery=80, valveOpen=null, rssi=-80}]}";
+
+    private static final String HISTORY8_DECODE =
+            "{cmd='41', length=25, sensorData=[{dataType='data', timestamp=1783653364, temperature=25.0, "
+            + "humidity=50.0, probTemperature=23.5, probHumidity=61.0, co2Percent=null, pressure=null, co2=null, "
+            + "pm25=null, pm10=null, tvoc=null, noise=null, light=null, battery=90, valveOpen=null, rssi=null}, "
+            + "{dataType='data', timestamp=1783653424, temperature=25.0, humidity=50.0, probTemperature=null, "
+            + "probHumidity=null, co2Percent=null, pressure=100.0, co2=null, pm25=null, pm10=null, tvoc=null, "
+            + "noise=null, light=null, battery=89, valveOpen=null, rssi=null}]}";
+
+    private static final String ROBB_DECODE =
+            "{cmd='41', length=34, sensorData=[{dataType='data', timestamp=1783653364, temperature=25.0, "
+            + "humidity=50.0, probTemperature=null, probHumidity=null, co2Percent=null, pressure=100.0, co2=800, "
+            + "pm25=12, pm10=20, tvoc=100, noise=45, light=300, battery=90, valveOpen=null, rssi=null}]}";
+
+    private static final String FROGS_DECODE =
+            "{cmd='41', length=27, sensorData=[{dataType='data', timestamp=1783653364, temperature=25.0, "
+            + "humidity=50.0, probTemperature=25.0, probHumidity=60.0, co2Percent=100.0, pressure=null, co2=null, "
+            + "pm25=null, pm10=null, tvoc=null, noise=null, light=null, battery=80, valveOpen=null, rssi=null}]}";
+
+    private static final String MQTT_COMMAND =
+            "43473D66000502003C000402000A00720200320073010000254C003139322E3136382E312E3130302031383833207573"
+            + "65722070C3A47373776F726420636C69656E7449642071696E6770696E672F6D61632F646F776E2071696E6770696E67"
+            + "2F6D61632F75701D0100011E1D";
+
+    public static void main(String[] args) {
+        Check check = new Check("TlvDecoderRegressionCheck");
+
+        frame(check, "v2", TLVDecoder.hexStringToByteArray(V2_FRAME), V2_DECODE, V2_UNPACK);
+        frame(check, "escaped", TLVDecoder.hexStringToByteArray(ESCAPED_FRAME), ESCAPED_DECODE, ESCAPED_UNPACK);
+        frame(check, "valve", Base64.getDecoder().decode(VALVE_FRAME_BASE64), VALVE_DECODE, VALVE_UNPACK);
+        frame(check, "realtime", TLVDecoder.hexStringToByteArray(REALTIME_FRAME), REALTIME_DECODE, null);
+        frame(check, "history", withCrc(TLVDecoder.hexStringToByteArray(HISTORY_FRAME)), HISTORY_DECODE, null);
+        frame(check, "v2 layouts", withCrc(v2LayoutsFrame()), V2_LAYOUTS_DECODE, null);
+        byte[] robbRealtime = withCrc(TLVDecoder.hexStringToByteArray(ROBB_REALTIME_FRAME));
+        frame(check, "robb realtime", robbRealtime, ROBB_REALTIME_DECODE, null);
+        view(check, "robb realtime", robbRealtime, 0x14);
+        byte[] frogsRealtime = withCrc(TLVDecoder.hexStringToByteArray(FROGS_REALTIME_FRAME));
+        frame(check, "frogs realtime", frogsRealtime, FROGS_REALTIME_DECODE, null);
+        view(check, "frogs realtime", frogsRealtime, 0x14);
+
+        byte[] history8 = withCrc(TLVDecoder.hexStringToByteArray(HISTORY8_FRAME));
+        frame(check, "history8", history8, HISTORY8_DECODE, null);
+        view(check, "history8", history8, 0x33);
+        HistoryDedup dedup = new HistoryDedup();
+        check.equal("history8 dedup first", 2,
+                TLVDecoder.decodeHistoryColumns(history8, 0, history8.length, "mac", dedup, new HistoryColumns()).size);
+        check.equal("history8 dedup again", 0,
+                TLVDecoder.decodeHistoryColumns(history8, 0, history8.length, "mac", dedup, new HistoryColumns()).size);
+
+        byte[] robb = withCrc(TLVDecoder.hexStringToByteArray(ROBB_FRAME));
+        frame(check, "robb history", robb, ROBB_DECODE, null);
+        view(check, "robb history", robb, 0x03);
+        byte[] frogs = withCrc(TLVDecoder.hexStringToByteArray(FROGS_FRAME));
+        frame(check, "frogs history", frogs, FROGS_DECODE, null);
+        view(check, "frogs history", frogs, 0x03);
+
+        encrypted(check);
+        errors(check);
+
+        check.equal("mqtt command", MQTT_COMMAND, TLVEncoder.bytesToHex(TLVEncoder.tlvEncode(mqttCommand())));
+        check.finish();
+    }
+
+    // 分别用 tlvDecode、tryDecode、tlvUnpack 解析同一帧；解析两遍，第二遍确认输入数组没有被改写
+    private static void frame(Check check, String name, byte[] frame, String decoded, String unpacked) {
+        byte[] original = frame.clone();
+        for (int pass = 1; pass <= 2; pass++) {
+            check.equal(name + " tlvDecode #" + pass, decoded, String.valueOf(TLVDecoder.tlvDecode(frame)));
+            DecodeResult result = TLVDecoder.tryDecode(frame, 0, frame.length, new DecodeResult());
+            check.equal(name + " tryDecode #" + pass, decoded, String.valueOf(result.toUnpackResult()));
+            if (unpacked != null) {
+                check.equal(name + " tlvUnpack #" + pass, unpacked, String.valueOf(TLVDecoder.tlvUnpack(frame)));
+            }
+            check.isTrue(name + " input unchanged #" + pass, Arrays.equals(original, frame));
+        }
+    }
+
+    // TlvKeyRegistry 在 TlvFrame 上的视图解码 key 子包，与 tlvDecode 一致（帧中没有 0x64 / 0x65 时）
+    private static void view(Check check, String name, byte[] frame, int key) {
+        TlvFrame tlvFrame = new TlvFrame().reset(frame, 0, frame.length);
+        check.equal(name + " view", String.valueOf(TLVDecoder.tlvDecode(frame).sensorData),
+                String.valueOf(TlvKeyRegistry.view(tlvFrame).decode(key)));
+    }
+
+    // 错误路径：帧头不完整时 TlvFrame 仍可打印，0x85 子包不足 5 字节时报 BAD_PAYLOAD
+    private static void errors(Check check) {
+        TlvFrame shortFrame = new TlvFrame();
+        check.equal("short header status", DecodeStatus.SHORT_HEADER,
+                shortFrame.tryReset(new byte[]{0x43, 0x47, 0x41}, 0, 3, null));
+        check.equal("short header toString", "{cmd=null, length=0, productId=0, subPackList=[]}", shortFrame.toString());
+        check.equal("short header toSubPackList", null, shortFrame.toSubPackList());
+
+        byte[] v2Short = withCrc(TLVDecoder.hexStringToByteArray("4347420600" + "850300f46350" + "0000"));
+        DecodeResult result = TLVDecoder.tryDecode(v2Short, 0, v2Short.length, new DecodeResult());
+        check.equal("short v2 status", DecodeStatus.BAD_PAYLOAD, result.status);
+        check.equal("short v2 skipped", 1, result.skippedSubPacks);
+    }
+
+    // 同一线程先后解包两个加密帧，第一次的 SubPack 不指向会被第二次解密覆盖的缓冲区
+    private static void encrypted(Check check) {
+        byte[] realtime = TLVDecoder.hexStringToByteArray(REALTIME_FRAME);
+        TLVDecoder.TlvSubPackList first = TLVDecoder.tlvUnpack(encrypt(realtime));
+        String before = String.valueOf(first);
+        TLVDecoder.tlvUnpack(encrypt(withCrc(TLVDecoder.hexStringToByteArray(HISTORY_FRAME))));
+        check.equal("encrypted tlvUnpack", String.valueOf(TLVDecoder.tlvUnpack(realtime)), before);
+        check.equal("encrypted tlvUnpack after next decrypt", before, String.valueOf(first));
+    }
+
+    // 默认秘钥 AES-128 ECB + PKCS7 加密
+    private static byte[] encrypt(byte[] frame) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+            cipher.init(Cipher.ENCRYPT_MODE,
+                    new SecretKeySpec(TLVDecoder.hexStringToByteArray(TlvDecryptor.DEFAULT_KEY), "AES"));
+            return cipher.doFinal(frame);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 每种 v2 记录类型各一条，内容为按类型和位置生成的字节，最后是电量和信号强度
+    private static byte[] v2LayoutsFrame() {
+        StringBuilder payload = new StringBuilder();
+        int[] types = {0x01, 0x02, 0x03, 0x04, 0x06, 0x07, 0x08, 0x09, 0x0A, 0x13, 0x20};
+        for (int type : types) {
+            int len = type == 0x0A ? 23 : 27;
+            payload.append("85").append(String.format("%02x00", len)).append("f463506a").append(String.format("%02x", type));
+            for (int k = 5; k < len; k++) {
+                payload.append(String.format("%02x", (k * 37 + type) & 0xFF));
+            }
+        }
+        payload.append("640100476501009c");
+        int len = payload.length() / 2;
+        return TLVDecoder.hexStringToByteArray("434742" + String.format("%02x%02x", len & 0xFF, len >> 8) + payload + "0000");
+    }
+
+    // 末尾 2 字节写入前面所有字节的和；tryDecode 会校验，tlvDecode 不校验
+    private static byte[] withCrc(byte[] frame) {
+        int crc = TLVEncoder.byteSumU16(frame, 0, frame.length - 2);
+        frame[frame.length - 2] = (byte) crc;
+        frame[frame.length - 1] = (byte) (crc >> 8);
+        return frame;
+    }
+
+    private static TLVEncoder.Command mqttCommand() {
+        TLVEncoder.Command cmd = new TLVEncoder.Command();
+        cmd.cmd = 0x3a;
+        cmd.endFlag = 1;
+        cmd.collectInterval = 60;
+        cmd.reportIntervl = 600;
+        cmd.valveOpen = 5;
+        cmd.valveSelfCheck = 1;
+        cmd.mqttSetting = new TLVEncoder.MqttSetting();
+        cmd.mqttSetting.host = "192.168.1.100";
+        cmd.mqttSetting.port = 1883;
+        cmd.mqttSetting.username = "user";
+        cmd.mqttSetting.password = "p\u00e4ssword";
+        cmd.mqttSetting.clientId = "clientId";
+        cmd.mqttSetting.downTopic = "qingping/mac/down";
+        cmd.mqttSetting.upTopic = "qingping/mac/up";
+        return cmd;
+    }
+}
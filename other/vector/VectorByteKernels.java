@@ -0,0 +1,64 @@
+package other.vector;
+
+// FIXME rename package
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// 类：VectorByteKernels，ByteKernels 的 Vector API 实现
+// 可选源码，不在 other/*.java 中，需要单独用 --add-modules jdk.incubator.vector 编译（见 README）；
+// 在类路径上且运行时加载了该模块时，ByteKernels 通过 MethodHandle 调用，否则走标量实现。不足一个向量的尾部按标量处理
+public final class VectorByteKernels {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    // 与 SPECIES 位宽相同，通道数减半
+    private static final VectorSpecies<Short> SHORT_SPECIES = SPECIES.withLanes(short.class);
+
+    private VectorByteKernels() {
+    }
+
+    // 每个 short 通道装两个字节，分别取低 8 位和逻辑右移 8 位累加；
+    // 只需要结果的低 16 位，short 累加溢出回绕不影响结果
+    public static int byteSum(byte[] b, int offset, int len) {
+        int end = offset + len;
+        int bound = offset + SPECIES.loopBound(len);
+        ShortVector acc = ShortVector.zero(SHORT_SPECIES);
+        int i = offset;
+        for (; i < bound; i += SPECIES.length()) {
+            ShortVector pairs = ByteVector.fromArray(SPECIES, b, i).reinterpretAsShorts();
+            acc = acc.add(pairs.and((short) 0xFF)).add(pairs.lanewise(VectorOperators.LSHR, 8));
+        }
+        int sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < end; i++) {
+            sum += b[i] & 0xFF;
+        }
+        return sum & 0xFFFF;
+    }
+
+    // 三个源字节各比较一次再依次混合，比较都针对原始数据，和查表结果一致
+    public static int substitute(byte[] b, int from, int to, int write,
+                                 int s0, int s1, int s2, byte t0, byte t1, byte t2) {
+        int bound = from + SPECIES.loopBound(to - from);
+        int i = from;
+        for (; i < bound; i += SPECIES.length(), write += SPECIES.length()) {
+            ByteVector v = ByteVector.fromArray(SPECIES, b, i);
+            ByteVector r = v;
+            if (s0 >= 0) r = r.blend(t0, v.eq((byte) s0));
+            if (s1 >= 0) r = r.blend(t1, v.eq((byte) s1));
+            if (s2 >= 0) r = r.blend(t2, v.eq((byte) s2));
+            // write 不大于 i，写入范围不会覆盖尚未读取的数据
+            r.intoArray(b, write);
+        }
+        for (; i < to; i++) {
+            int x = b[i] & 0xFF;
+            byte y = b[i];
+            if (x == s0) y = t0;
+            if (x == s1) y = t1;
+            if (x == s2) y = t2;
+            b[write++] = y;
+        }
+        return write;
+    }
+}